@@ -0,0 +1,75 @@
+package edu.proyecto;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Bucle de agregación aislado de la lectura: las ventas se codifican una vez en el setup
+ * (vendedor, producto, cantidad) y cada invocación las acumula en un SalesAggregates nuevo.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class AggregateBenchmark {
+
+    @Param({"10000", "1000000", "50000000"})
+    public int rows;
+
+    private Main.Dimensions dims;
+    private int[] seller;
+    private int[] product;
+    private int[] quantity;
+    private int count;
+
+    @Setup
+    public void setup() throws IOException {
+        Path dir = BenchmarkData.ensure(rows);
+        dims = BenchmarkData.dimensions(dir);
+        seller = new int[rows];
+        product = new int[rows];
+        quantity = new int[rows];
+        count = 0;
+        Main.readSales(dir.resolve("sales.csv"), (row, cols, q) -> {
+            int s = dims.sellerIds.find(row, cols.seller);
+            int p = dims.productIds.find(row, cols.product);
+            if (s < 0 || p < 0) return false;
+            seller[count] = s;
+            product[count] = p;
+            quantity[count] = q;
+            count++;
+            return true;
+        });
+    }
+
+    @Benchmark
+    public SalesAggregates aggregate() {
+        SalesAggregates agg = dims.newAggregates(0, 0);
+        for (int i = 0; i < count; i++) agg.add(seller[i], product[i], quantity[i]);
+        return agg;
+    }
+
+    @Benchmark
+    public SalesAggregates aggregateAndRank() {
+        SalesAggregates agg = aggregate();
+        agg.finish();
+        agg.rankedSellers(0);
+        agg.rankedProducts(0);
+        return agg;
+    }
+}
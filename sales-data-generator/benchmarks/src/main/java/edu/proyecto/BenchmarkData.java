@@ -0,0 +1,87 @@
+package edu.proyecto;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * BenchmarkData
+ * -------------
+ * Conjuntos de datos sintéticos para los benchmarks: dimensiones de GenerateInfoFiles.RandomData
+ * y ventas de GenerateInfoFiles.PartitionedSales (el generador de --sales, que escribe con CsvWriter).
+ * Cada tamaño se genera una sola vez en ${bench.data}/rows-N (por defecto target/bench-data)
+ * y se reutiliza entre ejecuciones; el archivo done marca que la generación terminó.
+ * Los conjuntos de varios archivos (shards) se cortan de ese sales.csv, uno por codec.
+ */
+final class BenchmarkData {
+
+    static final int SELLERS = 1_000;
+    static final int PRODUCTS = 5_000;
+
+    /** Semilla y rango de fechas fijos: el mismo tamaño produce siempre el mismo sales.csv. */
+    private static final long SEED = 23;
+    private static final LocalDate FROM = LocalDate.of(2024, 1, 1);
+    private static final LocalDate TO = LocalDate.of(2024, 12, 31);
+
+    private BenchmarkData() { }
+
+    /** Directorio con sellers.csv, products.csv y sales.csv de {@code rows} ventas. */
+    static synchronized Path ensure(int rows) throws IOException {
+        Path dir = Paths.get(System.getProperty("bench.data", "target/bench-data"), "rows-" + rows);
+        Path done = dir.resolve("done");
+        if (Files.exists(done)) return dir;
+
+        Files.createDirectories(dir);
+        List<GenerateInfoFiles.Seller> sellers = GenerateInfoFiles.RandomData.generateSellers(SELLERS);
+        List<GenerateInfoFiles.Product> products = GenerateInfoFiles.RandomData.generateProducts(PRODUCTS);
+        GenerateInfoFiles.CSV.writeSellers(dir.resolve("sellers.csv"), sellers);
+        GenerateInfoFiles.CSV.writeProducts(dir.resolve("products.csv"), products);
+
+        // Mismo camino que GenerateInfoFiles --sales: particiones con su propio generador, sin repetir lotes
+        GenerateInfoFiles.PartitionedSales gen = new GenerateInfoFiles.PartitionedSales(SEED, sellers, products,
+                GenerateInfoFiles.Distribution.parse("uniform", sellers.size()),
+                GenerateInfoFiles.Distribution.parse("uniform", products.size()), FROM, TO);
+        gen.write(dir, rows, Runtime.getRuntime().availableProcessors(), false, SalesFiles.Codec.NONE);
+        Files.createFile(done);
+        return dir;
+    }
+
+    /**
+     * Directorio con sales.csv de {@code rows} ventas repartido en {@code shards} archivos
+     * sales-NNNNN.csv[.gz] comprimidos con {@code codec}, cada uno con su cabecera.
+     */
+    static synchronized Path ensureShards(int rows, int shards, SalesFiles.Codec codec) throws IOException {
+        Path source = ensure(rows).resolve("sales.csv");
+        Path dir = source.getParent().resolve("shards-" + shards + "-" + codec.name().toLowerCase(Locale.ROOT));
+        if (Files.exists(dir.resolve("done"))) return dir;
+
+        Files.createDirectories(dir);
+        int perShard = (rows + shards - 1) / shards;
+        try (BufferedReader br = Files.newBufferedReader(source, StandardCharsets.UTF_8)) {
+            byte[] header = (br.readLine() + "\n").getBytes(StandardCharsets.UTF_8);
+            for (int k = 0; k < shards; k++) {
+                try (OutputStream out = codec.create(dir.resolve(String.format("sales-%05d", k) + codec.extension))) {
+                    out.write(header);
+                    String line;
+                    for (int i = 0; i < perShard && (line = br.readLine()) != null; i++) {
+                        out.write((line + "\n").getBytes(StandardCharsets.UTF_8));
+                    }
+                }
+            }
+        }
+        Files.createFile(dir.resolve("done"));
+        return dir;
+    }
+
+    /** Dimensiones codificadas leídas del conjunto de datos. */
+    static Main.Dimensions dimensions(Path dir) throws IOException {
+        return new Main.Dimensions(Main.readSellers(dir.resolve("sellers.csv")), Main.readProducts(dir.resolve("products.csv")));
+    }
+}
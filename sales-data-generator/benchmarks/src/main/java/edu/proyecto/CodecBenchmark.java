@@ -0,0 +1,102 @@
+package edu.proyecto;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Lectura de un conjunto de SHARDS archivos sales-*.csv[.gz] (SalesFiles) según el codec,
+ * separando las etapas:
+ * - readBytes: solo los bytes en disco, sin descomprimir (parte de IO);
+ * - decompress: descompresión sin tokenizar, en un hilo (parte de CPU del codec);
+ * - readSales: lectura completa (descompresión + tokenización) con Threads.threads hilos, un
+ *   archivo por hilo a la vez; comparar threads=1 con el resto da la escala con los núcleos.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CodecBenchmark {
+
+    private static final int SHARDS = 16;
+
+    @Param({"1000000", "50000000"})
+    public int rows;
+
+    @Param({"NONE", "GZIP"})
+    public SalesFiles.Codec codec;
+
+    private List<Path> files;
+    private final byte[] buf = new byte[1 << 16];
+
+    @Setup
+    public void setup() throws IOException {
+        files = SalesFiles.find(BenchmarkData.ensureShards(rows, SHARDS, codec));
+    }
+
+    @Benchmark
+    public long readBytes() throws IOException {
+        long total = 0;
+        ByteBuffer bb = ByteBuffer.wrap(buf);
+        for (Path p : files) {
+            try (FileChannel ch = FileChannel.open(p, StandardOpenOption.READ)) {
+                int n;
+                while ((n = ch.read(bb)) > 0) {
+                    total += n;
+                    bb.clear();
+                }
+            }
+        }
+        return total;
+    }
+
+    @Benchmark
+    public long decompress() throws IOException {
+        long total = 0;
+        for (Path p : files) {
+            try (InputStream in = codec.open(p)) {
+                int n;
+                while ((n = in.read(buf)) > 0) total += n;
+            }
+        }
+        return total;
+    }
+
+    /** Hilos de readSales; en un estado aparte para no multiplicar las otras mediciones. */
+    @State(Scope.Benchmark)
+    public static class Threads {
+        @Param({"1", "2", "4", "8"})
+        public int threads;
+    }
+
+    @Benchmark
+    public long readSales(Threads t) throws IOException {
+        ReadSalesBenchmark.Counter[] sinks = new ReadSalesBenchmark.Counter[t.threads];
+        for (int i = 0; i < t.threads; i++) sinks[i] = new ReadSalesBenchmark.Counter();
+        try (SalesRejects rejects = new SalesRejects(0)) {
+            SalesFiles.read(files, sinks, rejects);
+        }
+        long units = 0;
+        for (ReadSalesBenchmark.Counter c : sinks) units += c.units;
+        return units;
+    }
+}
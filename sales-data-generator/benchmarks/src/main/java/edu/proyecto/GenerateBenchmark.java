@@ -0,0 +1,46 @@
+package edu.proyecto;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Generación de ventas en memoria con GenerateInfoFiles.RandomData.
+ * Se limita a 1M filas porque generateSales materializa toda la lista.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class GenerateBenchmark {
+
+    @Param({"10000", "1000000"})
+    public int rows;
+
+    private List<GenerateInfoFiles.Seller> sellers;
+    private List<GenerateInfoFiles.Product> products;
+
+    @Setup
+    public void setup() {
+        sellers = GenerateInfoFiles.RandomData.generateSellers(BenchmarkData.SELLERS);
+        products = GenerateInfoFiles.RandomData.generateProducts(BenchmarkData.PRODUCTS);
+    }
+
+    @Benchmark
+    public List<GenerateInfoFiles.Sale> generateSales() {
+        return GenerateInfoFiles.RandomData.generateSales(rows, sellers, products);
+    }
+}
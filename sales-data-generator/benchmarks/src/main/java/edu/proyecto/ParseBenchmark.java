@@ -0,0 +1,64 @@
+package edu.proyecto;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Tokenización de líneas de sales.csv ya cargadas en memoria (Main.parseCSV + parseInt de quantity).
+ * Se mide por línea: cada invocación recorre LINES líneas.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParseBenchmark {
+
+    private static final int LINES = 10_000;
+
+    private byte[] buf;
+    private final int[] starts = new int[LINES];
+    private final int[] ends = new int[LINES];
+    private final CsvTokenizer row = new CsvTokenizer();
+
+    @Setup
+    public void setup() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (CsvTokenizer.LineReader lr = new CsvTokenizer.LineReader(
+                Files.newInputStream(BenchmarkData.ensure(LINES).resolve("sales.csv")))) {
+            lr.next(); // cabecera
+            for (int i = 0; i < LINES && lr.next(); i++) {
+                starts[i] = out.size();
+                out.write(lr.buffer(), lr.lineStart(), lr.lineEnd() - lr.lineStart());
+                ends[i] = out.size();
+            }
+        }
+        buf = out.toByteArray();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public long parseCSV() {
+        long units = 0;
+        for (int i = 0; i < LINES; i++) {
+            Main.parseCSV(row, buf, starts[i], ends[i], 5);
+            units += row.parseInt(3);
+        }
+        return units;
+    }
+}
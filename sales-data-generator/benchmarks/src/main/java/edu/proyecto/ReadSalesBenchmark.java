@@ -0,0 +1,69 @@
+package edu.proyecto;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Lectura completa de sales.csv (IO + tokenización) sin agregación: el destino solo suma cantidades. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ReadSalesBenchmark {
+
+    @Param({"10000", "1000000", "50000000"})
+    public int rows;
+
+    private Path sales;
+    private long units;
+
+    @Setup
+    public void setup() throws IOException {
+        sales = BenchmarkData.ensure(rows).resolve("sales.csv");
+    }
+
+    @Benchmark
+    public long readSales() throws IOException {
+        units = 0;
+        Main.readSales(sales, (row, cols, quantity) -> {
+            units += quantity;
+            return true;
+        });
+        return units;
+    }
+
+    @Benchmark
+    public long readSalesParallel() throws IOException {
+        int threads = Runtime.getRuntime().availableProcessors();
+        Counter[] sinks = new Counter[threads];
+        for (int i = 0; i < threads; i++) sinks[i] = new Counter();
+        ChunkedSalesReader.read(sales, sinks);
+        long total = 0;
+        for (Counter c : sinks) total += c.units;
+        return total;
+    }
+
+    static final class Counter implements Main.SaleSink {
+        long units;
+
+        @Override
+        public boolean accept(CsvTokenizer row, Main.SaleColumns cols, int quantity) {
+            units += quantity;
+            return true;
+        }
+    }
+}
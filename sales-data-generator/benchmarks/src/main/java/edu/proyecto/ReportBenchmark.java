@@ -0,0 +1,80 @@
+package edu.proyecto;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Escritura de los dos reportes a partir de agregados y rankings ya calculados en el setup;
+ * el orden de los rankings se mide aparte en rankSellers/rankProducts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ReportBenchmark {
+
+    @Param({"10000", "1000000", "50000000"})
+    public int rows;
+
+    private Main.Dimensions dims;
+    private SalesAggregates agg;
+    private int[] rankedSellers;
+    private int[] rankedProducts;
+    private Path out;
+
+    @Setup
+    public void setup() throws IOException {
+        Path dir = BenchmarkData.ensure(rows);
+        dims = BenchmarkData.dimensions(dir);
+        agg = dims.newAggregates(0, 0);
+        Main.readSales(dir.resolve("sales.csv"), agg);
+        agg.finish();
+        rankedSellers = agg.rankedSellers(0);
+        rankedProducts = agg.rankedProducts(0);
+        out = Files.createTempDirectory("bench-reports");
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(out.resolve("sellers.csv"));
+        Files.deleteIfExists(out.resolve("products.csv"));
+        Files.deleteIfExists(out);
+    }
+
+    @Benchmark
+    public void writeSellerReport() throws IOException {
+        Main.writeSellerReport(out.resolve("sellers.csv"), agg, dims.sellerNames, rankedSellers);
+    }
+
+    @Benchmark
+    public void writeProductReport() throws IOException {
+        Main.writeProductReport(out.resolve("products.csv"), agg, dims.productNames, rankedProducts);
+    }
+
+    @Benchmark
+    public int[] rankSellers() {
+        return agg.rankedSellers(0);
+    }
+
+    @Benchmark
+    public int[] rankProducts() {
+        return agg.rankedProducts(0);
+    }
+}
@@ -0,0 +1,298 @@
+package edu.proyecto;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ChunkedSalesReader
+ * ------------------
+ * Lectura paralela de sales.csv mediante memory-mapping.
+ * - Divide el archivo en tantos tramos contiguos como destinos (uno por hilo).
+ * - Cada corte se desplaza hasta el siguiente terminador de línea. El formato es por líneas:
+ *   un salto de línea siempre cierra el registro, también dentro de comillas (igual que el
+ *   lector secuencial), así que cortar ahí nunca parte un campo entrecomillado.
+ * - Cada hilo entrega sus filas a su propio SaleSink; la combinación queda a cargo del llamador.
+ *   Como los tramos respetan el orden del archivo, combinar los destinos en orden reproduce
+ *   el orden de primera aparición de la lectura secuencial.
+ * - Si un tramo falla (por ejemplo, al superar --max-errors) los demás hilos se cancelan y la
+ *   lectura no vuelve hasta que todos terminaron.
+ * - Las filas con menos columnas que la cabecera, con una cantidad que no es un entero o que el
+ *   destino no acepta (producto desconocido) van a SalesRejects en lugar de cortar la lectura;
+ *   cada hilo lleva su propio tramo de SalesRejects, que las numera en el orden del archivo.
+ */
+final class ChunkedSalesReader {
+
+    /** Tamaño máximo de cada ventana mapeada (FileChannel.map admite hasta 2 GB). */
+    private static final long WINDOW = 64L << 20;
+
+    /** Por debajo de este tamaño por tramo no compensa repartir el trabajo. */
+    static final long MIN_CHUNK = 1L << 20;
+
+    /** Cada cuántas líneas un hilo comprueba si la lectura se canceló (potencia de 2). */
+    static final int CANCEL_CHECK = 1 << 12;
+
+    private ChunkedSalesReader() { }
+
+    /**
+     * Lee las ventas repartiendo el archivo entre {@code sinks.length} hilos; devuelve las líneas
+     * leídas (también las descartadas). El primer error de formato detiene la lectura.
+     */
+    static long read(Path path, Main.SaleSink[] sinks) throws IOException {
+        try (SalesRejects rejects = new SalesRejects(0)) {
+            return read(path, sinks, rejects);
+        }
+    }
+
+    /** Como {@link #read(Path, Main.SaleSink[])}, con las filas descartadas en {@code rejects}. */
+    static long read(Path path, Main.SaleSink[] sinks, SalesRejects rejects) throws IOException {
+        return read(path, 0, Long.MAX_VALUE, sinks, rejects);
+    }
+
+    /**
+     * Como {@link #read(Path, Main.SaleSink[], SalesRejects)}, pero solo las líneas del tramo
+     * [from, to). Ambos extremos deben caer en inicios de línea; la cabecera nunca se entrega
+     * como fila. Con un único destino se lee en el hilo actual.
+     */
+    static long read(Path path, long from, long to, Main.SaleSink[] sinks, SalesRejects rejects) throws IOException {
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = ch.size();
+            if (size == 0) throw new IOException("Archivo vacío: " + path);
+
+            long headerEnd = nextLineStart(ch, 0, size);
+            Main.SaleColumns cols = new Main.SaleColumns(Main.splitHeader(readHeader(ch, headerEnd)));
+
+            long start = Math.max(from, headerEnd);
+            long end = Math.min(to, size);
+            if (start >= end) return 0;
+            int n = sinks.length;
+            if (n == 1) return readRange(ch, start, end, cols, sinks[0], rejects.range(start));
+
+            long[] bounds = new long[n + 1];
+            bounds[0] = start;
+            bounds[n] = end;
+            long span = end - start;
+            for (int k = 1; k < n; k++) {
+                long nominal = start + span / n * k;
+                bounds[k] = Math.max(bounds[k - 1], nominal == start ? start : Math.min(end, nextLineStart(ch, nominal, size)));
+            }
+
+            List<Callable<Long>> parts = new ArrayList<>(n);
+            for (int k = 0; k < n; k++) {
+                final long rangeFrom = bounds[k];
+                final long rangeTo = bounds[k + 1];
+                final Main.SaleSink sink = sinks[k];
+                final SalesRejects.Range range = rejects.range(rangeFrom);
+                parts.add(() -> readRange(ch, rangeFrom, rangeTo, cols, sink, range));
+            }
+            return runAll(parts);
+        }
+    }
+
+    private static long readRange(FileChannel ch, long from, long to, Main.SaleColumns cols, Main.SaleSink sink,
+                                  SalesRejects.Range rejects) throws IOException {
+        long count = 0;
+        try (CsvTokenizer.LineReader lr = new CsvTokenizer.LineReader(new MappedRangeInputStream(ch, from, to))) {
+            CsvTokenizer row = new CsvTokenizer();
+            while (lr.next()) {
+                if ((count & (CANCEL_CHECK - 1)) == 0) stopIfCancelled();
+                accept(row, lr, cols, sink, rejects, count++);
+            }
+        }
+        rejects.end(count);
+        return count;
+    }
+
+    /** Valida la línea actual de {@code lr} y la entrega a {@code sink}, o la descarta como línea {@code line} del tramo. */
+    static void accept(CsvTokenizer row, CsvTokenizer.LineReader lr, Main.SaleColumns cols, Main.SaleSink sink,
+                       SalesRejects.Range rejects, long line) {
+        if (row.tokenize(lr.buffer(), lr.lineStart(), lr.lineEnd()) < cols.count) {
+            rejects.reject(line, SalesRejects.Reason.COLUMNS, row);
+            return;
+        }
+        int quantity;
+        try {
+            quantity = row.parseInt(cols.qty);
+        } catch (NumberFormatException e) {
+            rejects.reject(line, SalesRejects.Reason.QUANTITY, row);
+            return;
+        }
+        if (!sink.accept(row, cols, quantity)) rejects.reject(line, SalesRejects.Reason.PRODUCT, row);
+    }
+
+    /**
+     * Ejecuta las tareas en paralelo (un hilo cada una) y suma lo que devuelven. Se esperan en el
+     * orden en que terminan: ante el primer error se cancelan las demás, que lo notan con
+     * {@link #stopIfCancelled}, y se espera a que todos los hilos terminen antes de relanzarlo,
+     * así ninguno sigue entregando filas a los destinos o a rejects después de volver.
+     */
+    static long runAll(List<Callable<Long>> tasks) throws IOException {
+        ExecutorService pool = Executors.newFixedThreadPool(tasks.size());
+        CompletionService<Long> done = new ExecutorCompletionService<>(pool);
+        List<Future<Long>> parts = new ArrayList<>(tasks.size());
+        try {
+            for (Callable<Long> t : tasks) parts.add(done.submit(t));
+            long count = 0;
+            for (int i = 0; i < parts.size(); i++) count += await(done);
+            return count;
+        } finally {
+            for (Future<Long> f : parts) f.cancel(true);
+            pool.shutdownNow();
+            awaitTermination(pool);
+        }
+    }
+
+    /** Lanza si el hilo fue interrumpido porque otra parte de la lectura falló. */
+    static void stopIfCancelled() throws InterruptedIOException {
+        if (Thread.currentThread().isInterrupted()) throw new InterruptedIOException("Lectura cancelada");
+    }
+
+    private static long await(CompletionService<Long> done) throws IOException {
+        try {
+            return done.take().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Lectura interrumpida", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) throw (IOException) cause;
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            throw new IOException(cause);
+        }
+    }
+
+    /** Espera a que terminen los hilos de {@code pool}; una interrupción se conserva para el llamador. */
+    private static void awaitTermination(ExecutorService pool) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                if (pool.awaitTermination(1, TimeUnit.MINUTES)) break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+    }
+
+    private static String readHeader(FileChannel ch, long headerEnd) throws IOException {
+        ByteBuffer bb = ByteBuffer.allocate((int) headerEnd);
+        while (bb.hasRemaining() && ch.read(bb, bb.position()) >= 0) { }
+        int len = (int) headerEnd;
+        while (len > 0 && (bb.get(len - 1) == '\n' || bb.get(len - 1) == '\r')) len--;
+        return new String(bb.array(), 0, len, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Posición siguiente al primer terminador ("\n", "\r" o "\r\n") encontrado desde {@code p},
+     * o {@code size} si no hay más terminadores.
+     */
+    static long nextLineStart(FileChannel ch, long p, long size) throws IOException {
+        ByteBuffer bb = ByteBuffer.allocate(8192);
+        long pos = p;
+        while (pos < size) {
+            bb.clear();
+            int n = ch.read(bb, pos);
+            if (n <= 0) break;
+            for (int i = 0; i < n; i++) {
+                byte c = bb.get(i);
+                if (c == '\n') return pos + i + 1;
+                if (c == '\r') {
+                    long next = pos + i + 1;
+                    if (next < size && peek(ch, next) == '\n') return next + 1;
+                    return next;
+                }
+            }
+            pos += n;
+        }
+        return size;
+    }
+
+    /**
+     * Posición siguiente al terminador de la última línea completa dentro de [from, size), o
+     * {@code from} si no hay ninguna. Un "\r" al final del archivo no cierra la línea todavía:
+     * si luego se agrega un "\n", ambos forman un único terminador "\r\n".
+     */
+    static long lastLineEnd(FileChannel ch, long from, long size) throws IOException {
+        ByteBuffer bb = ByteBuffer.allocate(8192);
+        int next = -1;   // byte siguiente al que se examina (-1 = fin del archivo)
+        long hi = size;
+        while (hi > from) {
+            int len = (int) Math.min(bb.capacity(), hi - from);
+            long pos = hi - len;
+            bb.clear();
+            bb.limit(len);
+            while (bb.hasRemaining() && ch.read(bb, pos + bb.position()) >= 0) { }
+            for (int i = len - 1; i >= 0; i--) {
+                byte c = bb.get(i);
+                if (c == '\n' || (c == '\r' && next >= 0)) return pos + i + 1;
+                next = c & 0xff;
+            }
+            hi = pos;
+        }
+        return from;
+    }
+
+    private static byte peek(FileChannel ch, long pos) throws IOException {
+        ByteBuffer one = ByteBuffer.allocate(1);
+        ch.read(one, pos);
+        return one.get(0);
+    }
+
+    /** InputStream sobre el tramo [from, to) del canal, mapeado por ventanas de a lo sumo WINDOW bytes. */
+    static final class MappedRangeInputStream extends InputStream {
+        private final FileChannel ch;
+        private final long end;
+        private long pos;
+        private MappedByteBuffer window;
+
+        MappedRangeInputStream(FileChannel ch, long from, long to) {
+            this.ch = ch;
+            this.pos = from;
+            this.end = to;
+        }
+
+        private boolean ensureWindow() throws IOException {
+            if (window != null && window.hasRemaining()) return true;
+            if (pos >= end) return false;
+            window = ch.map(FileChannel.MapMode.READ_ONLY, pos, Math.min(WINDOW, end - pos));
+            return true;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!ensureWindow()) return -1;
+            pos++;
+            return window.get() & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) return 0;
+            if (!ensureWindow()) return -1;
+            int n = Math.min(len, window.remaining());
+            window.get(b, off, n);
+            pos += n;
+            return n;
+        }
+
+        /** No cierra el canal: es compartido por todos los hilos. */
+        @Override
+        public void close() { window = null; }
+    }
+}
@@ -0,0 +1,296 @@
+package edu.proyecto;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * ColumnarSalesCache
+ * ------------------
+ * Copia binaria por columnas de sales.csv para no volver a parsear el CSV en cada reporte.
+ * - Los ids de vendedor y producto se guardan como códigos de un diccionario propio del
+ *   archivo (orden de primera aparición); la cantidad como int y la fecha como epoch-day
+ *   (CsvTokenizer.NO_DATE si no es válida).
+ * - Las filas van en bloques de BLOCK_ROWS; dentro de cada bloque, una columna tras otra.
+ *   Todos los bloques menos el último ocupan lo mismo, así que se ubican sin índice y se
+ *   leen con memory-mapping, repartiendo bloques contiguos entre hilos.
+ * - No depende de sellers.csv ni de products.csv: los códigos se traducen a los de las
+ *   dimensiones al agregar, con las mismas reglas que la lectura del CSV.
+ * - Solo se construye si todas las líneas son válidas, y solo se usa si además todos sus productos
+ *   están en products.csv: así nunca oculta filas que deberían ir a rejects.csv (ver covers).
+ * - Guarda la huella de sales.csv (tamaño, fecha de modificación, CRC de la cabecera y del
+ *   final); si el archivo cambia en cualquier forma, la caché se borra y se ignora.
+ *
+ * Formato (little-endian):
+ *   cabecera  magic, versión, filas, bloques, posición del pie y la huella de sales.csv
+ *   bloques   n, seller[n], product[n], quantity[n], epochDay[n]
+ *   pie       vendedores y productos del diccionario (cantidad y luego longitud + UTF-8 de cada id)
+ */
+final class ColumnarSalesCache implements Closeable {
+
+    static final int BLOCK_ROWS = 1 << 16;
+
+    private static final int MAGIC = 0x53434f4c;   // "SCOL"
+    private static final int VERSION = 1;
+    private static final int HEADER = 128;
+    private static final int COLUMNS = 4;
+
+    /** Bytes de sales.csv cubiertos por la caché (fin de la última línea completa). */
+    final long offset;
+    /** Filas de sales.csv (todas las líneas, se usen o no en los reportes). */
+    final long rows;
+
+    private final FileChannel ch;
+    private final int blocks;
+    private final String[] sellerIds;
+    private final String[] productIds;
+
+    private ColumnarSalesCache(FileChannel ch, long offset, long rows, int blocks, String[] sellerIds, String[] productIds) {
+        this.ch = ch;
+        this.offset = offset;
+        this.rows = rows;
+        this.blocks = blocks;
+        this.sellerIds = sellerIds;
+        this.productIds = productIds;
+    }
+
+    /* ==================== APERTURA ==================== */
+
+    /**
+     * Abre la caché si corresponde exactamente al {@code sales} actual; si está desactualizada
+     * o dañada la borra y devuelve null.
+     */
+    static ColumnarSalesCache open(Path file, Path sales) throws IOException {
+        if (!Files.exists(file)) return null;
+        FileChannel ch = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            ByteBuffer h = ByteBuffer.allocate(HEADER).order(ByteOrder.LITTLE_ENDIAN);
+            while (h.hasRemaining() && ch.read(h) >= 0) { }
+            h.flip();
+            if (h.remaining() == HEADER && h.getInt() == MAGIC && h.getInt() == VERSION) {
+                long rows = h.getLong();
+                int blocks = h.getInt();
+                long footer = h.getLong();
+                long offset = h.getLong();
+                long size = h.getLong();
+                long mtime = h.getLong();
+                long headerCrc = h.getLong();
+                long tailCrc = h.getLong();
+                if (SalesSnapshot.sameFile(sales, offset, size, mtime, headerCrc, tailCrc)) {
+                    ByteBuffer f = ch.map(FileChannel.MapMode.READ_ONLY, footer, ch.size() - footer).order(ByteOrder.LITTLE_ENDIAN);
+                    String[] sellerIds = readIds(f);
+                    String[] productIds = readIds(f);
+                    return new ColumnarSalesCache(ch, offset, rows, blocks, sellerIds, productIds);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // Caché ilegible: se descarta igual que una desactualizada
+        }
+        ch.close();
+        Files.deleteIfExists(file);
+        return null;
+    }
+
+    /**
+     * Abre la caché o, si falta o está desactualizada, la construye a partir de {@code sales}.
+     * Devuelve null si {@code sales} tiene líneas inválidas.
+     */
+    static ColumnarSalesCache openOrBuild(Path file, Path sales) throws IOException {
+        ColumnarSalesCache cache = open(file, sales);
+        if (cache != null) return cache;
+        build(file, sales);
+        return open(file, sales);
+    }
+
+    private static String[] readIds(ByteBuffer f) {
+        String[] ids = new String[f.getInt()];
+        for (int i = 0; i < ids.length; i++) {
+            byte[] b = new byte[f.getInt()];
+            f.get(b);
+            ids[i] = new String(b, StandardCharsets.UTF_8);
+        }
+        return ids;
+    }
+
+    /* ==================== CONSTRUCCIÓN ==================== */
+
+    /** Convierte las líneas completas de {@code sales} en el archivo columnar {@code file}, si todas son válidas. */
+    static void build(Path file, Path sales) throws IOException {
+        long size = Files.size(sales);
+        long mtime = Files.getLastModifiedTime(sales).toMillis();
+        long offset;
+        long headerCrc;
+        long tailCrc;
+        try (FileChannel src = FileChannel.open(sales, StandardOpenOption.READ)) {
+            offset = ChunkedSalesReader.lastLineEnd(src, 0, size);
+            headerCrc = SalesSnapshot.headerCrc(src);
+            tailCrc = SalesSnapshot.tailCrc(src, offset);
+        }
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        boolean valid;
+        try (Writer w = new Writer(tmp); SalesRejects rejects = new SalesRejects(Long.MAX_VALUE)) {
+            long rows = ChunkedSalesReader.read(sales, 0, offset, new Main.SaleSink[] { w }, rejects);
+            valid = rejects.total() == 0;
+            if (valid) w.finish(rows, offset, size, mtime, headerCrc, tailCrc);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        if (!valid) {
+            Files.delete(tmp);
+            return;
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /** Recibe las filas del CSV en orden y las escribe por bloques. */
+    private static final class Writer implements Main.SaleSink, Closeable {
+        private final FileChannel out;
+        private final IdDictionary sellers = new IdDictionary();
+        private final IdDictionary products = new IdDictionary();
+        private final int[][] columns = new int[COLUMNS][BLOCK_ROWS];
+        private final ByteBuffer block = ByteBuffer.allocateDirect(4 + COLUMNS * 4 * BLOCK_ROWS).order(ByteOrder.LITTLE_ENDIAN);
+        private int n;
+        private int blocks;
+
+        Writer(Path tmp) throws IOException {
+            out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+            out.position(HEADER);
+        }
+
+        @Override
+        public boolean accept(CsvTokenizer row, Main.SaleColumns cols, int quantity) {
+            columns[0][n] = sellers.intern(row, cols.seller);
+            columns[1][n] = products.intern(row, cols.product);
+            columns[2][n] = quantity;
+            columns[3][n] = row.parseEpochDay(cols.date);
+            if (++n == BLOCK_ROWS) {
+                try {
+                    flushBlock();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            return true;
+        }
+
+        private void flushBlock() throws IOException {
+            block.clear();
+            block.putInt(n);
+            IntBuffer ints = block.asIntBuffer();
+            for (int[] c : columns) ints.put(c, 0, n);
+            block.limit(4 + COLUMNS * 4 * n);
+            block.position(0);
+            writeFully(out, block);
+            blocks++;
+            n = 0;
+        }
+
+        void finish(long rows, long offset, long size, long mtime, long headerCrc, long tailCrc) throws IOException {
+            if (n > 0) flushBlock();
+            long footer = out.position();
+            writeIds(sellers);
+            writeIds(products);
+            ByteBuffer h = ByteBuffer.allocate(HEADER).order(ByteOrder.LITTLE_ENDIAN);
+            h.putInt(MAGIC).putInt(VERSION).putLong(rows).putInt(blocks).putLong(footer);
+            h.putLong(offset).putLong(size).putLong(mtime).putLong(headerCrc).putLong(tailCrc);
+            h.clear();
+            out.position(0);
+            writeFully(out, h);
+        }
+
+        private void writeIds(IdDictionary dict) throws IOException {
+            ByteBuffer b = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+            b.putInt(dict.size());
+            for (int i = 0; i < dict.size(); i++) {
+                byte[] id = dict.id(i).getBytes(StandardCharsets.UTF_8);
+                if (b.remaining() < 4 + id.length) {
+                    b.flip();
+                    writeFully(out, b);
+                    if (b.capacity() < 4 + id.length) b = ByteBuffer.allocate(4 + id.length).order(ByteOrder.LITTLE_ENDIAN);
+                    b.clear();
+                }
+                b.putInt(id.length).put(id);
+            }
+            b.flip();
+            writeFully(out, b);
+        }
+
+        @Override
+        public void close() throws IOException { out.close(); }
+    }
+
+    private static void writeFully(FileChannel ch, ByteBuffer b) throws IOException {
+        while (b.hasRemaining()) ch.write(b);
+    }
+
+    /* ==================== AGREGACIÓN ==================== */
+
+    /** true si todos los productos de la caché están en {@code products} (ninguna fila se descartaría). */
+    boolean covers(IdDictionary products) {
+        for (String id : productIds) if (products.find(id) < 0) return false;
+        return true;
+    }
+
+    /**
+     * Suma todas las filas en los agregados, repartiendo bloques contiguos entre ellos (uno por
+     * hilo, en el orden del archivo; la combinación queda a cargo del llamador). Devuelve las filas.
+     */
+    long aggregate(SalesAggregates[] parts) throws IOException {
+        // Traducción de códigos de productos: igual para todos los hilos (-1 = desconocido)
+        IdDictionary dimProducts = parts[0].products;
+        int[] productCode = new int[productIds.length];
+        for (int i = 0; i < productIds.length; i++) productCode[i] = dimProducts.find(productIds[i]);
+
+        int n = Math.min(parts.length, Math.max(1, blocks));
+        if (n == 1) return aggregateBlocks(0, blocks, productCode, parts[0]);
+        List<Callable<Long>> tasks = new ArrayList<>(n);
+        for (int k = 0; k < n; k++) {
+            final int from = (int) ((long) blocks * k / n);
+            final int to = (int) ((long) blocks * (k + 1) / n);
+            final SalesAggregates agg = parts[k];
+            tasks.add(() -> aggregateBlocks(from, to, productCode, agg));
+        }
+        return ChunkedSalesReader.runAll(tasks);
+    }
+
+    private long aggregateBlocks(int from, int to, int[] productCode, SalesAggregates agg) throws IOException {
+        // Los vendedores se traducen al primer uso: los desconocidos reciben códigos locales del agregado
+        int[] sellerCode = new int[sellerIds.length];
+        Arrays.fill(sellerCode, -1);
+        long blockBytes = 4 + (long) COLUMNS * 4 * BLOCK_ROWS;
+        long count = 0;
+        for (int b = from; b < to; b++) {
+            ChunkedSalesReader.stopIfCancelled();
+            long pos = HEADER + b * blockBytes;
+            ByteBuffer mb = ch.map(FileChannel.MapMode.READ_ONLY, pos, Math.min(blockBytes, ch.size() - pos)).order(ByteOrder.LITTLE_ENDIAN);
+            int n = mb.getInt();
+            IntBuffer cols = mb.asIntBuffer();
+            count += n;
+            for (int i = 0; i < n; i++) {
+                int p = productCode[cols.get(n + i)];
+                if (p < 0) continue;
+                int c = cols.get(i);
+                int s = sellerCode[c];
+                if (s < 0) s = sellerCode[c] = agg.sellerCode(sellerIds[c]);
+                agg.add(s, p, cols.get(2 * n + i), cols.get(3 * n + i));
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException { ch.close(); }
+}
@@ -0,0 +1,324 @@
+package edu.proyecto;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+
+/**
+ * CsvTokenizer
+ * ------------
+ * Tokenizador CSV reutilizable sobre un buffer de bytes UTF-8.
+ * - No crea objetos por línea: solo guarda los desplazamientos [inicio, fin) de cada campo.
+ * - Mantiene la semántica de comillas dobles del parser original ("" dentro de comillas = ").
+ * - Los separadores (',', '"', '\n', '\r') son ASCII, por lo que nunca aparecen dentro
+ *   de un carácter UTF-8 multibyte y se puede trabajar directamente sobre bytes.
+ *
+ * Los desplazamientos solo son válidos hasta la siguiente llamada a {@link #tokenize}.
+ */
+final class CsvTokenizer {
+
+    /** Resultado de {@link #parseEpochDay} para fechas vacías o inválidas. */
+    static final int NO_DATE = Integer.MIN_VALUE;
+
+    private static final byte QUOTE = '"';
+    private static final byte COMMA = ',';
+
+    private byte[] buf;
+    private int lineStart;
+    private int lineEnd;
+    private int count;
+    private int[] starts = new int[8];
+    private int[] ends = new int[8];
+    private boolean[] quoted = new boolean[8];
+    private byte[] scratch = new byte[64];
+
+    /** Tokeniza la línea buf[from, to) (sin terminador) y devuelve la cantidad de campos. */
+    int tokenize(byte[] buf, int from, int to) {
+        this.buf = buf;
+        this.lineStart = from;
+        this.lineEnd = to;
+        int n = 0;
+        int fieldStart = from;
+        boolean inQuotes = false;
+        boolean hasQuote = false;
+        for (int i = from; i < to; i++) {
+            byte c = buf[i];
+            if (c == QUOTE) {
+                hasQuote = true;
+                if (inQuotes && i + 1 < to && buf[i + 1] == QUOTE) {
+                    i++;
+                } else {
+                    inQuotes = !inQuotes;
+                }
+            } else if (c == COMMA && !inQuotes) {
+                add(n++, fieldStart, i, hasQuote);
+                fieldStart = i + 1;
+                hasQuote = false;
+            }
+        }
+        add(n++, fieldStart, to, hasQuote);
+        count = n;
+        return n;
+    }
+
+    private void add(int i, int start, int end, boolean hasQuote) {
+        if (i == starts.length) {
+            int len = i * 2;
+            starts = Arrays.copyOf(starts, len);
+            ends = Arrays.copyOf(ends, len);
+            quoted = Arrays.copyOf(quoted, len);
+        }
+        starts[i] = start;
+        ends[i] = end;
+        quoted[i] = hasQuote;
+    }
+
+    int fieldCount() { return count; }
+
+    byte[] buffer() { return buf; }
+
+    int start(int i) { return starts[i]; }
+
+    int end(int i) { return ends[i]; }
+
+    /** true si el campo contiene comillas y su valor difiere de los bytes crudos. */
+    boolean isQuoted(int i) { return quoted[i]; }
+
+    /** Línea completa (sin terminador), usada en mensajes de error. */
+    String line() {
+        return new String(buf, lineStart, lineEnd - lineStart, StandardCharsets.UTF_8);
+    }
+
+    /** Valor del campo ya sin comillas. Único método que crea un String. */
+    String string(int i) {
+        if (!quoted[i]) {
+            return new String(buf, starts[i], ends[i] - starts[i], StandardCharsets.UTF_8);
+        }
+        int len = unquote(i);
+        return new String(scratch, 0, len, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Convierte el campo a int sin crear un String intermedio.
+     * Ante cualquier caso no trivial delega en Integer.parseInt para conservar
+     * exactamente sus reglas y su mensaje de error.
+     */
+    int parseInt(int i) {
+        int p = starts[i];
+        int end = ends[i];
+        if (quoted[i] || p == end) return Integer.parseInt(string(i));
+        boolean negative = false;
+        byte first = buf[p];
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            if (++p == end) return Integer.parseInt(string(i));
+        }
+        // Hasta 9 dígitos no hay desbordamiento posible
+        if (end - p > 9) return Integer.parseInt(string(i));
+        int value = 0;
+        for (; p < end; p++) {
+            int d = buf[p] - '0';
+            if (d < 0 || d > 9) return Integer.parseInt(string(i));
+            value = value * 10 + d;
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Convierte un importe decimal (por ejemplo "31.21") en centavos sin pasar por double.
+     * Con más de dos decimales redondea al centavo (mitades hacia afuera, como HALF_UP).
+     * Ante cualquier caso no trivial (comillas, espacios, exponente, más de 16 dígitos enteros)
+     * delega en BigDecimal, con sus reglas y su mensaje de error.
+     */
+    long parseCents(int i) {
+        int p = starts[i];
+        int end = ends[i];
+        if (quoted[i] || p == end) return slowCents(i);
+        boolean negative = false;
+        byte first = buf[p];
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            p++;
+        }
+        long whole = 0;
+        int intDigits = 0;
+        for (; p < end && buf[p] != '.'; p++, intDigits++) {
+            int d = buf[p] - '0';
+            if (d < 0 || d > 9 || intDigits == 16) return slowCents(i);
+            whole = whole * 10 + d;
+        }
+        int cents = 0;
+        int fracDigits = 0;
+        boolean roundUp = false;
+        if (p < end) {
+            for (p++; p < end; p++, fracDigits++) {
+                int d = buf[p] - '0';
+                if (d < 0 || d > 9) return slowCents(i);
+                if (fracDigits < 2) cents = cents * 10 + d;
+                else if (fracDigits == 2) roundUp = d >= 5;
+            }
+        }
+        if (intDigits == 0 && fracDigits == 0) return slowCents(i);
+        if (fracDigits == 1) cents *= 10;
+        long v = whole * 100 + cents + (roundUp ? 1 : 0);
+        return negative ? -v : v;
+    }
+
+    private long slowCents(int i) {
+        return new BigDecimal(string(i).trim()).setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    /**
+     * Convierte una fecha ISO (AAAA-MM-DD) en días desde 1970-01-01 sin crear objetos.
+     * Otros formatos que acepte LocalDate.parse pasan por él; si no es una fecha devuelve NO_DATE
+     * (la fecha nunca fue obligatoria para los reportes).
+     */
+    int parseEpochDay(int i) {
+        int p = starts[i];
+        if (!quoted[i] && ends[i] - p == 10 && buf[p + 4] == '-' && buf[p + 7] == '-') {
+            int y = digits(p, 4);
+            int m = digits(p + 5, 2);
+            int d = digits(p + 8, 2);
+            if (y >= 0 && m >= 1 && m <= 12 && d >= 1 && d <= monthLength(y, m)) return epochDay(y, m, d);
+        }
+        try {
+            long day = LocalDate.parse(string(i).trim()).toEpochDay();
+            return (int) day == day ? (int) day : NO_DATE;
+        } catch (DateTimeParseException e) {
+            return NO_DATE;
+        }
+    }
+
+    private int digits(int p, int n) {
+        int v = 0;
+        for (int k = p; k < p + n; k++) {
+            int d = buf[k] - '0';
+            if (d < 0 || d > 9) return -1;
+            v = v * 10 + d;
+        }
+        return v;
+    }
+
+    private static int monthLength(int y, int m) {
+        if (m == 2) return (y % 4 == 0 && (y % 100 != 0 || y % 400 == 0)) ? 29 : 28;
+        return (m == 4 || m == 6 || m == 9 || m == 11) ? 30 : 31;
+    }
+
+    /** Días desde 1970-01-01 del calendario gregoriano proléptico (igual que LocalDate.toEpochDay). */
+    static int epochDay(int y, int m, int d) {
+        int yy = m <= 2 ? y - 1 : y;
+        int era = Math.floorDiv(yy, 400);
+        int yoe = yy - era * 400;
+        int doy = (153 * (m > 2 ? m - 3 : m + 9) + 2) / 5 + d - 1;
+        int doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+        return era * 146097 + doe - 719468;
+    }
+
+    /** Copia el campo i a scratch aplicando las reglas de comillas; devuelve la longitud. */
+    private int unquote(int i) {
+        int start = starts[i];
+        int end = ends[i];
+        if (scratch.length < end - start) scratch = new byte[end - start];
+        int len = 0;
+        boolean inQuotes = false;
+        for (int p = start; p < end; p++) {
+            byte c = buf[p];
+            if (c == QUOTE) {
+                if (inQuotes && p + 1 < end && buf[p + 1] == QUOTE) {
+                    scratch[len++] = QUOTE;
+                    p++;
+                } else {
+                    inQuotes = !inQuotes;
+                }
+            } else {
+                scratch[len++] = c;
+            }
+        }
+        return len;
+    }
+
+    /* ==================== LECTURA POR LÍNEAS ==================== */
+
+    /**
+     * Lector de líneas sobre un InputStream con un único buffer reutilizable.
+     * Reconoce los mismos terminadores que BufferedReader.readLine: "\n", "\r" y "\r\n".
+     */
+    static final class LineReader implements Closeable {
+        private final InputStream in;
+        private byte[] buf = new byte[1 << 16];
+        private int pos;
+        private int limit;
+        private boolean eof;
+        private boolean skipLF;
+        private int lineStart;
+        private int lineEnd;
+
+        LineReader(InputStream in) { this.in = in; }
+
+        /** Avanza a la siguiente línea; false al llegar al final del archivo. */
+        boolean next() throws IOException {
+            int scan = pos;
+            while (true) {
+                if (skipLF && pos < limit) {
+                    if (buf[pos] == '\n') pos++;
+                    skipLF = false;
+                    scan = pos;
+                }
+                for (int i = scan; i < limit; i++) {
+                    byte c = buf[i];
+                    if (c == '\n' || c == '\r') {
+                        lineStart = pos;
+                        lineEnd = i;
+                        pos = i + 1;
+                        if (c == '\r') skipLF = true;
+                        return true;
+                    }
+                }
+                if (eof) {
+                    skipLF = false;
+                    if (pos == limit) return false;
+                    lineStart = pos;
+                    lineEnd = limit;
+                    pos = limit;
+                    return true;
+                }
+                scan = fill();
+            }
+        }
+
+        /** Compacta el resto pendiente al inicio del buffer y lee más bytes. Devuelve dónde seguir buscando. */
+        private int fill() throws IOException {
+            int pending = limit - pos;
+            if (pending == buf.length) {
+                buf = Arrays.copyOf(buf, buf.length * 2);
+            } else if (pos > 0) {
+                System.arraycopy(buf, pos, buf, 0, pending);
+            }
+            pos = 0;
+            limit = pending;
+            int n = in.read(buf, limit, buf.length - limit);
+            if (n < 0) eof = true;
+            else limit += n;
+            return pending;
+        }
+
+        byte[] buffer() { return buf; }
+
+        int lineStart() { return lineStart; }
+
+        int lineEnd() { return lineEnd; }
+
+        String lineString() {
+            return new String(buf, lineStart, lineEnd - lineStart, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public void close() throws IOException { in.close(); }
+    }
+}
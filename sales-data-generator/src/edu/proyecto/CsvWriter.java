@@ -0,0 +1,202 @@
+package edu.proyecto;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * CsvWriter
+ * ---------
+ * Escritor de CSV sobre un único buffer de bytes reutilizable, compartido por los reportes
+ * de Main y los archivos de GenerateInfoFiles.
+ * - Enteros y decimales se escriben dígito a dígito, sin String.format ni concatenaciones.
+ * - El resultado es idéntico byte a byte al de BufferedWriter + String.format(Locale.US, "%.2f"):
+ *   UTF-8, System.lineSeparator() como fin de línea y el mismo redondeo (ver writeFixed2).
+ * - Con un archivo, el buffer se vuelca por FileChannel al llenarse; sin archivo crece en
+ *   memoria y se obtiene con toByteArray().
+ */
+final class CsvWriter implements Closeable {
+
+    private static final byte[] NEWLINE = System.lineSeparator().getBytes(StandardCharsets.UTF_8);
+
+    /** Por debajo de este valor absoluto el error de v*100 es despreciable frente a un centavo. */
+    private static final double FAST_FIXED_LIMIT = 1e9;
+
+    private final FileChannel out;
+    private byte[] buf;
+    private int len;
+
+    /** Escribe en {@code path}, creándolo o truncándolo. */
+    CsvWriter(Path path) throws IOException {
+        this.out = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        this.buf = new byte[1 << 16];
+    }
+
+    /** Escribe en {@code path} a continuación de sus primeros {@code keep} bytes; el resto se descarta. */
+    CsvWriter(Path path, long keep) throws IOException {
+        this.out = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        out.truncate(keep);
+        out.position(out.size());
+        this.buf = new byte[1 << 16];
+    }
+
+    /** Escribe en memoria, con una capacidad inicial de {@code capacity} bytes. */
+    CsvWriter(int capacity) {
+        this.out = null;
+        this.buf = new byte[Math.max(capacity, 16)];
+    }
+
+    /** Texto tal cual, en UTF-8. */
+    CsvWriter write(String s) throws IOException {
+        int n = s.length();
+        ensure(n);
+        for (int i = 0; i < n; i++) {
+            char c = s.charAt(i);
+            if (c >= 0x80) return write(s.substring(i).getBytes(StandardCharsets.UTF_8));
+            buf[len++] = (byte) c;
+        }
+        return this;
+    }
+
+    /** Un carácter ASCII (separadores). */
+    CsvWriter write(char c) throws IOException {
+        ensure(1);
+        buf[len++] = (byte) c;
+        return this;
+    }
+
+    /** Caracteres ASCII, como los ids hexadecimales del generador. */
+    CsvWriter write(char[] ascii) throws IOException {
+        ensure(ascii.length);
+        for (char c : ascii) buf[len++] = (byte) c;
+        return this;
+    }
+
+    CsvWriter write(byte[] bytes) throws IOException {
+        if (bytes.length > buf.length && out != null) {
+            flush();
+            ByteBuffer bb = ByteBuffer.wrap(bytes);
+            while (bb.hasRemaining()) out.write(bb);
+            return this;
+        }
+        ensure(bytes.length);
+        System.arraycopy(bytes, 0, buf, len, bytes.length);
+        len += bytes.length;
+        return this;
+    }
+
+    CsvWriter write(int v) throws IOException {
+        return write((long) v);
+    }
+
+    CsvWriter write(long v) throws IOException {
+        if (v == Long.MIN_VALUE) return write(Long.toString(v));
+        ensure(20);
+        if (v < 0) {
+            buf[len++] = '-';
+            v = -v;
+        }
+        int digits = 1;
+        for (long t = v; t >= 10; t /= 10) digits++;
+        for (int i = len + digits - 1; i >= len; i--) {
+            buf[i] = (byte) ('0' + v % 10);
+            v /= 10;
+        }
+        len += digits;
+        return this;
+    }
+
+    /**
+     * Igual que String.format(Locale.US, "%.2f", v). El formateador redondea HALF_UP la
+     * representación decimal del double; solo si v*100 queda muy cerca de ,5 (o el valor es
+     * enorme, NaN o infinito) ambos caminos podrían diferir, y entonces se delega en él.
+     */
+    CsvWriter writeFixed2(double v) throws IOException {
+        double a = Math.abs(v);
+        if (a < FAST_FIXED_LIMIT) {
+            double scaled = a * 100;
+            long whole = (long) scaled;
+            double frac = scaled - whole;
+            if (Math.abs(frac - 0.5) > 1e-3) {
+                long cents = frac > 0.5 ? whole + 1 : whole;
+                if (Double.doubleToRawLongBits(v) < 0) write('-');
+                write(cents / 100);
+                int c = (int) (cents % 100);
+                ensure(3);
+                buf[len++] = '.';
+                buf[len++] = (byte) ('0' + c / 10);
+                buf[len++] = (byte) ('0' + c % 10);
+                return this;
+            }
+        }
+        return write(String.format(Locale.US, "%.2f", v));
+    }
+
+    /** Importe en centavos con dos decimales ("-12.05"), exacto. */
+    CsvWriter writeCents(long cents) throws IOException {
+        if (cents < 0) write('-');
+        write(Math.abs(cents / 100));
+        int c = (int) Math.abs(cents % 100);
+        ensure(3);
+        buf[len++] = '.';
+        buf[len++] = (byte) ('0' + c / 10);
+        buf[len++] = (byte) ('0' + c % 10);
+        return this;
+    }
+
+    /** Campo de texto con las comillas de CSV si contiene ',' o '"'. */
+    CsvWriter writeField(String s) throws IOException {
+        if (s.indexOf(',') < 0 && s.indexOf('"') < 0) return write(s);
+        write('"');
+        int from = 0;
+        for (int q; (q = s.indexOf('"', from)) >= 0; from = q + 1) {
+            write(s.substring(from, q + 1)).write('"');
+        }
+        return write(s.substring(from)).write('"');
+    }
+
+    CsvWriter newLine() throws IOException {
+        ensure(NEWLINE.length);
+        for (byte b : NEWLINE) buf[len++] = b;
+        return this;
+    }
+
+    /** Bytes escritos hasta ahora, incluidos los que siguen en el buffer (con archivo, su tamaño). */
+    long size() throws IOException {
+        return out == null ? len : out.position() + len;
+    }
+
+    /** Contenido escrito (solo sin archivo). */
+    byte[] toByteArray() {
+        return Arrays.copyOf(buf, len);
+    }
+
+    private void ensure(int n) throws IOException {
+        if (len + n <= buf.length) return;
+        if (out != null) flush();
+        if (len + n > buf.length) buf = Arrays.copyOf(buf, Math.max(buf.length * 2, len + n));
+    }
+
+    void flush() throws IOException {
+        if (out == null) return;
+        ByteBuffer bb = ByteBuffer.wrap(buf, 0, len);
+        while (bb.hasRemaining()) out.write(bb);
+        len = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (out == null) return;
+        try {
+            flush();
+        } finally {
+            out.close();
+        }
+    }
+}
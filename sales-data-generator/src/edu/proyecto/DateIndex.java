@@ -0,0 +1,241 @@
+package edu.proyecto;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * DateIndex
+ * ---------
+ * Totales diarios por vendedor y por producto guardados en disco particionados por día,
+ * para responder consultas por rango de fechas (--from/--to) sin volver a leer las ventas.
+ * - Un directorio ordenado por día indica dónde empieza el bloque de cada día; una consulta
+ *   busca el primer día del rango y mapea solo los bloques de los días pedidos.
+ * - Los códigos son los de las dimensiones (más los vendedores que no están en sellers.csv,
+ *   cuyos ids van al final del archivo), por eso el índice guarda el CRC de sellers.csv y
+ *   products.csv además de la huella de sales.csv; si algo cambia, se ignora y se reescribe.
+ *
+ * Formato (little-endian):
+ *   cabecera    magic, versión, CRC de dimensiones, huella de sales.csv, días, posición del pie
+ *   directorio  por día: epochDay, posición del bloque, registros de vendedores y de productos
+ *   bloques     registros (código, unidades, ingresos en centavos) de vendedores y luego de productos
+ *   pie         ids de los vendedores locales (cantidad y luego longitud + UTF-8 de cada id)
+ */
+final class DateIndex implements Closeable {
+
+    private static final int MAGIC = 0x53494458;   // "SIDX"
+    private static final int VERSION = 2;
+    private static final int HEADER = 64;
+    private static final int DIR_ENTRY = 20;
+    private static final int RECORD = 16;
+
+    private final FileChannel ch;
+    private final int days;
+    private final String[] extraSellers;
+
+    private DateIndex(FileChannel ch, int days, String[] extraSellers) {
+        this.ch = ch;
+        this.days = days;
+        this.extraSellers = extraSellers;
+    }
+
+    /* ==================== ESCRITURA ==================== */
+
+    /**
+     * Escribe el índice con los totales diarios de {@code agg}, que cubre sales.csv completo
+     * tal como era con {@code size} bytes y fecha de modificación {@code mtime}.
+     */
+    static void write(Path file, Path sales, long dimensionsCrc, long size, long mtime, SalesAggregates agg) throws IOException {
+        SalesAggregates.DailyTotals.Entries bySeller = agg.sellerDays().sorted();
+        SalesAggregates.DailyTotals.Entries byProduct = agg.productDays().sorted();
+        long headerCrc;
+        long tailCrc;
+        try (FileChannel src = FileChannel.open(sales, StandardOpenOption.READ)) {
+            headerCrc = SalesSnapshot.headerCrc(src);
+            tailCrc = SalesSnapshot.tailCrc(src, size);
+        }
+
+        // Días presentes en cualquiera de los dos lados, en orden
+        int[] dayList = new int[bySeller.size + byProduct.size];
+        int days = 0;
+        for (int i = 0, j = 0; i < bySeller.size || j < byProduct.size; ) {
+            int d = j >= byProduct.size || (i < bySeller.size && bySeller.day[i] <= byProduct.day[j]) ? bySeller.day[i] : byProduct.day[j];
+            dayList[days++] = d;
+            while (i < bySeller.size && bySeller.day[i] == d) i++;
+            while (j < byProduct.size && byProduct.day[j] == d) j++;
+        }
+
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer dir = ByteBuffer.allocate(days * DIR_ENTRY).order(ByteOrder.LITTLE_ENDIAN);
+            ByteBuffer block = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+            long pos = HEADER + (long) days * DIR_ENTRY;
+            out.position(pos);
+            int i = 0;
+            int j = 0;
+            for (int k = 0; k < days; k++) {
+                int d = dayList[k];
+                int si = i;
+                while (i < bySeller.size && bySeller.day[i] == d) i++;
+                int pj = j;
+                while (j < byProduct.size && byProduct.day[j] == d) j++;
+                dir.putInt(d).putLong(pos).putInt(i - si).putInt(j - pj);
+                putRecords(out, block, bySeller, si, i);
+                putRecords(out, block, byProduct, pj, j);
+                pos += (long) (i - si + j - pj) * RECORD;
+            }
+            flush(out, block);
+
+            long footer = pos;
+            int base = agg.sellers.size();
+            int extras = agg.sellerCodes() - base;
+            block.putInt(extras);
+            for (int c = 0; c < extras; c++) {
+                byte[] id = agg.sellerId(base + c).getBytes(StandardCharsets.UTF_8);
+                if (block.remaining() < 4 + id.length) {
+                    flush(out, block);
+                    if (block.capacity() < 4 + id.length) block = ByteBuffer.allocate(4 + id.length).order(ByteOrder.LITTLE_ENDIAN);
+                }
+                block.putInt(id.length).put(id);
+            }
+            flush(out, block);
+
+            ByteBuffer h = ByteBuffer.allocate(HEADER).order(ByteOrder.LITTLE_ENDIAN);
+            h.putInt(MAGIC).putInt(VERSION).putLong(dimensionsCrc);
+            h.putLong(size).putLong(mtime).putLong(headerCrc).putLong(tailCrc);
+            h.putInt(days).putLong(footer);
+            h.clear();
+            out.position(0);
+            writeFully(out, h);
+            dir.flip();
+            writeFully(out, dir);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void putRecords(FileChannel out, ByteBuffer block, SalesAggregates.DailyTotals.Entries e,
+                                   int from, int to) throws IOException {
+        for (int i = from; i < to; i++) {
+            if (block.remaining() < RECORD) flush(out, block);
+            block.putInt(e.code[i]).putInt(e.units[i]).putLong(e.revenue[i]);
+        }
+    }
+
+    private static void flush(FileChannel out, ByteBuffer block) throws IOException {
+        block.flip();
+        writeFully(out, block);
+        block.clear();
+    }
+
+    private static void writeFully(FileChannel out, ByteBuffer b) throws IOException {
+        while (b.hasRemaining()) out.write(b);
+    }
+
+    /* ==================== CONSULTA ==================== */
+
+    /**
+     * Abre el índice si corresponde exactamente al {@code sales} actual y a las mismas
+     * dimensiones; si no, devuelve null.
+     */
+    static DateIndex open(Path file, Path sales, long dimensionsCrc) throws IOException {
+        if (!Files.exists(file)) return null;
+        FileChannel ch = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            ByteBuffer h = ByteBuffer.allocate(HEADER).order(ByteOrder.LITTLE_ENDIAN);
+            while (h.hasRemaining() && ch.read(h) >= 0) { }
+            h.flip();
+            if (h.remaining() == HEADER && h.getInt() == MAGIC && h.getInt() == VERSION && h.getLong() == dimensionsCrc) {
+                long size = h.getLong();
+                long mtime = h.getLong();
+                long headerCrc = h.getLong();
+                long tailCrc = h.getLong();
+                int days = h.getInt();
+                long footer = h.getLong();
+                if (SalesSnapshot.sameFile(sales, size, size, mtime, headerCrc, tailCrc)) {
+                    ByteBuffer f = ch.map(FileChannel.MapMode.READ_ONLY, footer, ch.size() - footer).order(ByteOrder.LITTLE_ENDIAN);
+                    String[] extras = new String[f.getInt()];
+                    for (int i = 0; i < extras.length; i++) {
+                        byte[] b = new byte[f.getInt()];
+                        f.get(b);
+                        extras[i] = new String(b, StandardCharsets.UTF_8);
+                    }
+                    return new DateIndex(ch, days, extras);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // Índice ilegible: se trata como desactualizado
+        }
+        ch.close();
+        return null;
+    }
+
+    /** Ids de los vendedores que no están en sellers.csv, en orden de código a partir de sellers.size(). */
+    String[] extraSellers() { return extraSellers; }
+
+    /** Suma los días [fromDay, toDay] (epoch-day, inclusivos); solo lee los bloques de esos días. */
+    RangeTotals query(int fromDay, int toDay, int sellerCodes, int productCodes) throws IOException {
+        RangeTotals t = new RangeTotals(sellerCodes, productCodes);
+        ByteBuffer dir = ch.map(FileChannel.MapMode.READ_ONLY, HEADER, (long) days * DIR_ENTRY).order(ByteOrder.LITTLE_ENDIAN);
+        // Búsqueda binaria del primer día >= fromDay
+        int lo = 0;
+        int hi = days;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (dir.getInt(mid * DIR_ENTRY) < fromDay) lo = mid + 1;
+            else hi = mid;
+        }
+        for (int k = lo; k < days && dir.getInt(k * DIR_ENTRY) <= toDay; k++) {
+            long pos = dir.getLong(k * DIR_ENTRY + 4);
+            int sellers = dir.getInt(k * DIR_ENTRY + 12);
+            int products = dir.getInt(k * DIR_ENTRY + 16);
+            if (sellers + products == 0) continue;
+            ByteBuffer b = ch.map(FileChannel.MapMode.READ_ONLY, pos, (long) (sellers + products) * RECORD).order(ByteOrder.LITTLE_ENDIAN);
+            for (int i = 0; i < sellers; i++) t.addSeller(b.getInt(), b.getInt(), b.getLong());
+            for (int i = 0; i < products; i++) t.addProduct(b.getInt(), b.getInt(), b.getLong());
+            t.days++;
+        }
+        return t;
+    }
+
+    @Override
+    public void close() throws IOException { ch.close(); }
+
+    /** Totales de un rango de fechas por código de vendedor y de producto (ingresos en centavos). */
+    static final class RangeTotals {
+        final int[] sellerUnits;
+        final long[] sellerRevenue;
+        final boolean[] sellerSeen;
+        final int[] productUnits;
+        final long[] productRevenue;
+        final boolean[] productSeen;
+        int days;
+
+        RangeTotals(int sellerCodes, int productCodes) {
+            sellerUnits = new int[sellerCodes];
+            sellerRevenue = new long[sellerCodes];
+            sellerSeen = new boolean[sellerCodes];
+            productUnits = new int[productCodes];
+            productRevenue = new long[productCodes];
+            productSeen = new boolean[productCodes];
+        }
+
+        private void addSeller(int code, int units, long revenue) {
+            sellerUnits[code] += units;
+            sellerRevenue[code] = Math.addExact(sellerRevenue[code], revenue);
+            sellerSeen[code] = true;
+        }
+
+        private void addProduct(int code, int units, long revenue) {
+            productUnits[code] += units;
+            productRevenue[code] = Math.addExact(productRevenue[code], revenue);
+            productSeen[code] = true;
+        }
+    }
+}
@@ -0,0 +1,669 @@
+package edu.proyecto;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.stream.Stream;
+
+/**
+ * ExternalAggregation
+ * -------------------
+ * Reportes por vendedor y por producto con memoria acotada (--memory-limit), para cuando los
+ * totales por entidad y la matriz vendedor×producto no caben en el heap.
+ * - Partición: cada venta válida se escribe dos veces en archivos temporales, en la partición
+ *   del hash de su vendedor y en la del hash de su producto (registros binarios de tamaño fijo).
+ *   La cantidad de particiones sale de estimar las filas de sales.csv contra el límite.
+ * - Agregación: cada partición se agrega sola (todas las ventas de una entidad caen en la misma)
+ *   con tablas de direccionamiento abierto y se escribe ordenada como una corrida.
+ * - Mezcla: las corridas se combinan con un montículo (k-way merge) directo al reporte, y con
+ *   --top N se corta en la fila N.
+ * - Búferes: la otra mitad del límite es para los búferes de archivo. Al partir hay dos
+ *   escritores abiertos por partición, de al menos MIN_BUFFER bytes: si con las particiones que
+ *   hacen falta no entran, la ejecución se detiene con un error que dice qué límite alcanza.
+ *   Una repartición abre a lo sumo los escritores que entran, y las corridas se abren recién al
+ *   mezclar, con el búfer que les toca a cada una.
+ * - Repartición: la cantidad de particiones supone datos parejos; si los totales de una partición
+ *   (por ejemplo, la de un vendedor muy frecuente con distribución Zipf) superan su parte del
+ *   límite mientras se agrega, se descarta lo agregado y se reparte en subparticiones con otra
+ *   semilla de hash, cada una con su corrida.
+ * La memoria de la agregación depende del límite y no del tamaño de los datos; las dimensiones
+ * (sellers.csv y products.csv) se siguen cargando completas. Una sola entidad con más celdas de
+ * las que entran en el límite no se puede partir: la ejecución se detiene con un error que la nombra.
+ *
+ * Empates: como en SalesAggregates, gana el orden de iteración del HashMap original, pero sin
+ * guardar todas las claves: computeIfAbsent/merge insertan al principio de la cubeta, así que el
+ * orden es cubeta ascendente y, dentro de ella, primera aparición descendente. La capacidad final
+ * solo depende de la cantidad de claves y de si el último acceso fue una inserción. Difiere solo
+ * si una cubeta llegara a 8 claves (HashMap la convierte en árbol), algo que con ids reales no pasa.
+ */
+final class ExternalAggregation {
+
+    /** Memoria estimada por venta al agregar una partición (celda, entidad y orden de la corrida). */
+    static final int BYTES_PER_ROW = 72;
+    private static final int MAX_SHARDS = 1024;
+    // Búfer de cada archivo temporal: al partir y repartir (mínimo y máximo) y al mezclar (mínimo)
+    private static final int MIN_BUFFER = 4096;
+    private static final int MAX_BUFFER = 1 << 16;
+    private static final int MIN_RUN_BUFFER = 1024;
+    /** Niveles de repartición de una partición antes de rendirse. */
+    private static final int MAX_LEVELS = 4;
+    // Memoria por entidad (totales, más lo que agregan finish() y writeRun()) y por celda de ShardTotals
+    private static final int ENTITY_BYTES = 56;
+    private static final int CELL_BYTES = 12;
+    private static final int SAMPLE = 1 << 20;
+
+    private static final int RECORD = 20;   // entidad, la otra dimensión, unidades, fila
+    private static final int RESULT = 40;   // código, unidades, ingresos (centavos), fila, distintos, top, unidades del top, cubeta
+
+    private final IdDictionary sellers;
+    private final IdDictionary products;
+    private final long[] unitCents;
+    private final IdDictionary extraSellers = new IdDictionary();
+    private final int shards;
+    private final int bufferSize;
+    private final long shardBudget;
+    private final long bufferBudget;
+    private int resplit;
+
+    private ExternalAggregation(Main.Dimensions dims, int shards, int bufferSize, long shardBudget, long bufferBudget) {
+        this.sellers = dims.sellerIds;
+        this.products = dims.productIds;
+        this.unitCents = dims.unitCents;
+        this.shards = shards;
+        this.bufferSize = bufferSize;
+        this.shardBudget = shardBudget;
+        this.bufferBudget = bufferBudget;
+    }
+
+    /**
+     * Resultado de {@link #run}: filas leídas, filas con producto conocido, particiones usadas y
+     * cuántas hubo que repartir por no entrar en el límite.
+     */
+    static final class Result {
+        final long lines;
+        final long accepted;
+        final int shards;
+        final int resplit;
+        Result(long lines, long accepted, int shards, int resplit) {
+            this.lines = lines;
+            this.accepted = accepted;
+            this.shards = shards;
+            this.resplit = resplit;
+        }
+    }
+
+    /**
+     * Lee {@code sales} completo y escribe los reportes por vendedor y por producto (solo los
+     * {@code limit} primeros si {@code limit} > 0), usando a lo sumo unos {@code memoryLimit}
+     * bytes para la agregación. Los archivos temporales van a un directorio dentro de {@code workDir}.
+     * Las filas descartadas van a {@code rejects}. Falla antes de leer si el límite no alcanza para
+     * los búferes de las particiones que hacen falta.
+     */
+    static Result run(Path sales, Main.Dimensions dims, long memoryLimit, int limit, Path sellerReport, Path productReport,
+                      Path workDir, SalesRejects rejects, RunMetrics metrics) throws IOException {
+        // La mitad del límite para agregar una partición, la otra para los búferes de archivo
+        long rows = estimateRows(sales);
+        int shards = shardsFor(rows, memoryLimit);
+        if (!buffersFit(shards, memoryLimit)) throw tooManyShards(rows, shards, memoryLimit);
+        // Dos escritores por partición al partir
+        int bufferSize = (int) Math.min(MAX_BUFFER, memoryLimit / 2 / (2L * shards));
+        ExternalAggregation ext = new ExternalAggregation(dims, shards, bufferSize, memoryLimit / 2, memoryLimit / 2);
+
+        Path dir = Files.createTempDirectory(workDir, "shards-");
+        try {
+            RunMetrics.Stage st = metrics.begin("partition_sales");
+            Partitioner part = ext.new Partitioner(dir);
+            long lines;
+            try {
+                lines = ChunkedSalesReader.read(sales, new Main.SaleSink[] { part }, rejects);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            } finally {
+                part.close();
+            }
+            st.end(lines, Files.size(sales));
+            ext.writeReport(sellerReport, dir, true, part.sellerCount, part.sellersEndOnInsert, limit, dims, metrics);
+            ext.writeReport(productReport, dir, false, part.productCount, part.productsEndOnInsert, limit, dims, metrics);
+            return new Result(lines, part.rows, shards, ext.resplit);
+        } finally {
+            try (Stream<Path> files = Files.list(dir)) {
+                for (Path f : (Iterable<Path>) files::iterator) Files.deleteIfExists(f);
+            }
+            Files.deleteIfExists(dir);
+        }
+    }
+
+    /** Particiones para unas {@code rows} filas: cada una debe poder agregarse en la mitad del límite. */
+    private static int shardsFor(long rows, long memoryLimit) {
+        long half = memoryLimit / 2;
+        return (int) Math.min(MAX_SHARDS, Math.max(1, (rows * BYTES_PER_ROW + half - 1) / half));
+    }
+
+    /** true si los dos escritores de cada partición, con MIN_BUFFER bytes, entran en la mitad del límite. */
+    private static boolean buffersFit(int shards, long memoryLimit) {
+        return 2L * shards * MIN_BUFFER <= memoryLimit / 2;
+    }
+
+    /** Error para un límite que no alcanza para los búferes de las particiones, con el menor que alcanzaría. */
+    private static IOException tooManyShards(long rows, int shards, long memoryLimit) {
+        long mb = (memoryLimit >> 20) + 1;
+        while (!buffersFit(shardsFor(rows, mb << 20), mb << 20)) mb++;
+        return new IOException("Con unas " + rows + " filas hacen falta " + shards + " particiones y sus búferes de archivo (2 × "
+                + shards + " × " + (MIN_BUFFER >> 10) + " KB) no entran en la mitad de --memory-limit (" + (memoryLimit / 2 >> 10)
+                + " KB). Use --memory-limit " + mb + "m o más, o la lectura en memoria");
+    }
+
+    /**
+     * Filas de {@code sales} estimadas con el largo medio de línea del primer MB. Las líneas
+     * terminan como en LineReader: en \n, \r o \r\n (que cuenta una sola vez).
+     */
+    private static long estimateRows(Path sales) throws IOException {
+        try (FileChannel ch = FileChannel.open(sales, StandardOpenOption.READ)) {
+            long size = ch.size();
+            ByteBuffer b = ByteBuffer.allocate((int) Math.min(size, SAMPLE));
+            while (b.hasRemaining() && ch.read(b) >= 0) { }
+            int lines = 0;
+            for (int i = 0; i < b.position(); i++) {
+                byte c = b.get(i);
+                // \r\n cuenta en el \r
+                if (c == '\r' || (c == '\n' && (i == 0 || b.get(i - 1) != '\r'))) lines++;
+            }
+            if (lines == 0) return 1;
+            return size / Math.max(1, b.position() / lines) + 1;
+        }
+    }
+
+    private String sellerId(int s) {
+        int base = sellers.size();
+        return s < base ? sellers.id(s) : extraSellers.id(s - base);
+    }
+
+    private int shardOf(int code) {
+        int h = code * 0x9E3779B9;
+        return ((h ^ (h >>> 16)) & Integer.MAX_VALUE) % shards;
+    }
+
+    /**
+     * Subpartición de {@code code} entre {@code n} en el nivel {@code level} de repartición: otra
+     * semilla y más mezcla que shardOf, así las entidades de una partición no vuelven a caer juntas.
+     */
+    private static int subShardOf(int code, int level, int n) {
+        int h = (code ^ level * 0x85EBCA6B) * 0xC2B2AE35;
+        h ^= h >>> 13;
+        h *= 0x9E3779B9;
+        return ((h ^ (h >>> 16)) & Integer.MAX_VALUE) % n;
+    }
+
+    /** Cubeta del id en un HashMap de {@code capacity} cubetas (mismo hash que HashMap). */
+    private static int bucket(String id, int capacity) {
+        int h = id.hashCode();
+        return (h ^ (h >>> 16)) & (capacity - 1);
+    }
+
+    /**
+     * Cubetas de un HashMap tras {@code n} claves con computeIfAbsent/merge: agrandan la tabla
+     * al inicio de la llamada si el tamaño supera 3/4 de la capacidad.
+     */
+    private static int hashMapCapacity(int n, boolean endsOnInsert) {
+        int size = endsOnInsert ? n - 1 : n;
+        int capacity = 16;
+        while (size > capacity / 4 * 3) capacity *= 2;
+        return capacity;
+    }
+
+    /* ==================== PARTICIÓN ==================== */
+
+    /** Escribe cada venta en la partición de su vendedor y en la de su producto. */
+    private final class Partitioner implements Main.SaleSink {
+        private final SpillWriter[] bySeller = new SpillWriter[shards];
+        private final SpillWriter[] byProduct = new SpillWriter[shards];
+        private final BitSet sellerSeen = new BitSet();
+        private final BitSet productSeen = new BitSet();
+        long rows;
+        int sellerCount;
+        int productCount;
+        boolean sellersEndOnInsert;
+        boolean productsEndOnInsert;
+
+        Partitioner(Path dir) throws IOException {
+            for (int i = 0; i < shards; i++) {
+                bySeller[i] = new SpillWriter(dir.resolve("seller-" + i), bufferSize);
+                byProduct[i] = new SpillWriter(dir.resolve("product-" + i), bufferSize);
+            }
+        }
+
+        @Override
+        public boolean accept(CsvTokenizer row, Main.SaleColumns cols, int quantity) {
+            int p = products.find(row, cols.product);
+            if (p < 0) return false;
+            int s = sellers.find(row, cols.seller);
+            if (s < 0) s = sellers.size() + extraSellers.intern(row, cols.seller);
+            long r = rows++;
+
+            sellersEndOnInsert = !sellerSeen.get(s);
+            if (sellersEndOnInsert) {
+                sellerSeen.set(s);
+                sellerCount++;
+            }
+            productsEndOnInsert = !productSeen.get(p);
+            if (productsEndOnInsert) {
+                productSeen.set(p);
+                productCount++;
+            }
+            try {
+                bySeller[shardOf(s)].write(s, p, quantity, r);
+                byProduct[shardOf(p)].write(p, s, quantity, r);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return true;
+        }
+
+        void close() throws IOException {
+            for (int i = 0; i < shards; i++) {
+                if (bySeller[i] != null) bySeller[i].close();
+                if (byProduct[i] != null) byProduct[i].close();
+            }
+        }
+    }
+
+    /* ==================== AGREGACIÓN Y MEZCLA ==================== */
+
+    /**
+     * Agrega cada partición de un lado (vendedores por ingresos o productos por unidades), la
+     * escribe ordenada y mezcla las corridas en el reporte.
+     */
+    private void writeReport(Path report, Path dir, boolean bySeller, int entities, boolean endsOnInsert,
+                             int limit, Main.Dimensions dims, RunMetrics metrics) throws IOException {
+        String side = bySeller ? "seller-" : "product-";
+        int capacity = hashMapCapacity(entities, endsOnInsert);
+        List<Path> runFiles = new ArrayList<>(shards);
+        RunMetrics.Stage st = metrics.begin(bySeller ? "aggregate_sellers" : "aggregate_products");
+        long records = 0;
+        for (int i = 0; i < shards; i++) {
+            Path in = dir.resolve(side + i);
+            records += Files.size(in) / RECORD;
+            aggregateShard(in, bySeller, capacity, 0, runFiles);
+        }
+        st.end(records, records * RECORD);
+
+        // Todas las corridas quedan abiertas a la vez: se reparten los búferes
+        int runBuffer = (int) Math.max(MIN_RUN_BUFFER, Math.min(bufferSize, bufferBudget / runFiles.size()));
+        List<Run> runs = new ArrayList<>(runFiles.size());
+        try {
+            st = metrics.begin(bySeller ? "merge_sellers_report" : "merge_products_report");
+            for (Path f : runFiles) runs.add(new Run(new SpillReader(f, runBuffer, RESULT)));
+
+            PriorityQueue<Run> heap = new PriorityQueue<>(runs.size(), (a, b) -> {
+                int c = bySeller ? Long.compare(b.revenue, a.revenue) : Integer.compare(b.units, a.units);
+                if (c != 0) return c;
+                c = Integer.compare(a.bucket, b.bucket);
+                return c != 0 ? c : Long.compare(b.firstRow, a.firstRow);
+            });
+            for (Run r : runs) if (r.next()) heap.add(r);
+
+            int written = 0;
+            try (CsvWriter w = new CsvWriter(report)) {
+                w.write(bySeller ? Main.SELLER_REPORT_HEADER : Main.PRODUCT_REPORT_HEADER).newLine();
+                for (; !heap.isEmpty() && (limit <= 0 || written < limit); written++) {
+                    Run r = heap.poll();
+                    String id;
+                    String name;
+                    String topId;
+                    if (bySeller) {
+                        id = sellerId(r.code);
+                        name = r.code < sellers.size() ? dims.sellerNames[r.code] : null;
+                        topId = r.top < 0 ? "" : products.id(r.top);
+                    } else {
+                        id = products.id(r.code);
+                        name = dims.productNames[r.code];
+                        topId = r.top < 0 ? "" : sellerId(r.top);
+                    }
+                    Main.writeRankedRow(w, id, name == null ? "DESCONOCIDO" : name, r.units, r.revenue, r.distinct, topId, r.topUnits);
+                    if (r.next()) heap.add(r);
+                }
+            }
+            st.end(written, Files.size(report));
+        } finally {
+            for (Run r : runs) r.in.close();
+        }
+    }
+
+    /**
+     * Agrega la partición {@code in} y agrega el archivo de su corrida a {@code runs}. Si sus totales
+     * superan shardBudget, la reparte en subparticiones (nivel {@code level} + 1) y agrega cada una;
+     * las corridas se mezclan igual, porque el orden del reporte no depende de la partición.
+     */
+    private void aggregateShard(Path in, boolean bySeller, int capacity, int level, List<Path> runs) throws IOException {
+        ShardTotals t = new ShardTotals(bySeller);
+        boolean fits = true;
+        try (SpillReader r = new SpillReader(in, bufferSize, RECORD)) {
+            // Las tablas crecen al doble: al pasar el presupuesto ocupan a lo sumo el doble, el límite completo
+            while (fits && r.next()) {
+                t.add(r.buf.getInt(), r.buf.getInt(), r.buf.getInt(), r.buf.getLong());
+                fits = t.bytes() <= shardBudget;
+            }
+        }
+        if (!fits) {
+            if (t.entities == 1 || level == MAX_LEVELS) throw tooLarge(bySeller, t.entities == 1 ? t.code[0] : -1);
+            t = null;
+            for (Path p : resplit(in, level + 1)) aggregateShard(p, bySeller, capacity, level + 1, runs);
+            return;
+        }
+        Files.delete(in);
+        t.finish();
+        Path run = in.resolveSibling(in.getFileName() + "-run");
+        t.writeRun(run, capacity);
+        runs.add(run);
+    }
+
+    /**
+     * Reparte los registros de {@code in} por entidad en subparticiones del nivel {@code level} y lo borra.
+     * Abre a lo sumo los escritores que entran con su lector en bufferBudget; si quedan
+     * subparticiones grandes, se reparten de nuevo en el nivel siguiente.
+     */
+    private Path[] resplit(Path in, int level) throws IOException {
+        long records = Files.size(in) / RECORD;
+        long fit = Math.max(2, bufferBudget / MIN_BUFFER - 1);
+        int n = (int) Math.min(Math.min(MAX_SHARDS, fit), Math.max(2, (records * BYTES_PER_ROW + shardBudget - 1) / shardBudget));
+        int size = (int) Math.max(MIN_BUFFER, Math.min(bufferSize, bufferBudget / (n + 1)));
+        Path[] parts = new Path[n];
+        SpillWriter[] out = new SpillWriter[n];
+        try {
+            for (int i = 0; i < n; i++) out[i] = new SpillWriter(parts[i] = in.resolveSibling(in.getFileName() + "." + i), size);
+            try (SpillReader r = new SpillReader(in, size, RECORD)) {
+                while (r.next()) {
+                    int entity = r.buf.getInt();
+                    out[subShardOf(entity, level, n)].write(entity, r.buf.getInt(), r.buf.getInt(), r.buf.getLong());
+                }
+            }
+        } finally {
+            for (SpillWriter w : out) if (w != null) w.close();
+        }
+        Files.delete(in);
+        resplit++;
+        return parts;
+    }
+
+    /** Error para una partición que no entra en el límite: la de una sola entidad ({@code code} >= 0) o tras MAX_LEVELS. */
+    private IOException tooLarge(boolean bySeller, int code) {
+        String what = code >= 0
+                ? (bySeller ? "El vendedor " + sellerId(code) : "El producto " + products.id(code))
+                  + " tiene demasiadas combinaciones distintas con " + (bySeller ? "productos" : "vendedores")
+                : "Una partición de " + (bySeller ? "vendedores" : "productos") + " sigue sin entrar tras "
+                  + MAX_LEVELS + " reparticiones";
+        return new IOException(what + ": sus totales ocupan más de la mitad de --memory-limit (" + (shardBudget >> 10)
+                + " KB). Aumente el límite o use la lectura en memoria");
+    }
+
+    /** Lector de una corrida ordenada con su registro actual. */
+    private static final class Run {
+        final SpillReader in;
+        int code, units, distinct, top, topUnits, bucket;
+        long revenue;
+        long firstRow;
+
+        Run(SpillReader in) { this.in = in; }
+
+        boolean next() throws IOException {
+            if (!in.next()) return false;
+            ByteBuffer b = in.buf;
+            code = b.getInt();
+            units = b.getInt();
+            revenue = b.getLong();
+            firstRow = b.getLong();
+            distinct = b.getInt();
+            top = b.getInt();
+            topUnits = b.getInt();
+            bucket = b.getInt();
+            return true;
+        }
+    }
+
+    /**
+     * Totales de las entidades de una partición y sus celdas (entidad, otra dimensión), con
+     * índices de direccionamiento abierto. Las celdas se numeran en orden de creación, que es
+     * el orden de primera aparición dentro de la entidad.
+     */
+    private final class ShardTotals {
+        private final boolean bySeller;
+
+        private int[] entitySlots = new int[64];   // slot -> entidad local + 1 (0 = vacío)
+        private int entities;
+        private int[] code = new int[16];
+        private int[] units = new int[16];
+        private long[] revenue = new long[16];
+        private long[] firstRow = new long[16];
+        private boolean[] endsOnInsert = new boolean[16];
+
+        private int[] cellSlots = new int[64];     // slot -> celda + 1 (0 = vacío)
+        private int cells;
+        private int[] cellEntity = new int[16];
+        private int[] cellOther = new int[16];
+        private int[] cellUnits = new int[16];
+
+        // Calculados por finish()
+        private int[] distinct, top, topUnits;
+
+        ShardTotals(boolean bySeller) {
+            this.bySeller = bySeller;
+        }
+
+        /** Memoria aproximada de las tablas, por su capacidad (lo que ocupan, no lo que usan). */
+        long bytes() {
+            return (long) code.length * ENTITY_BYTES + (long) cellEntity.length * CELL_BYTES
+                    + 4L * (entitySlots.length + cellSlots.length);
+        }
+
+        void add(int entity, int other, int qty, long row) {
+            int e = entity(entity, row);
+            units[e] += qty;
+            revenue[e] = Math.addExact(revenue[e], Math.multiplyExact(unitCents[bySeller ? other : entity], qty));
+            endsOnInsert[e] = addCell(e, other, qty);
+        }
+
+        private int entity(int c, long row) {
+            int mask = entitySlots.length - 1;
+            int slot = mix(c) & mask;
+            for (int e; (e = entitySlots[slot] - 1) >= 0; slot = (slot + 1) & mask) {
+                if (code[e] == c) return e;
+            }
+            int e = entities++;
+            if (e == code.length) {
+                int len = e * 2;
+                code = Arrays.copyOf(code, len);
+                units = Arrays.copyOf(units, len);
+                revenue = Arrays.copyOf(revenue, len);
+                firstRow = Arrays.copyOf(firstRow, len);
+                endsOnInsert = Arrays.copyOf(endsOnInsert, len);
+            }
+            code[e] = c;
+            firstRow[e] = row;
+            entitySlots[slot] = e + 1;
+            if (entities * 2 > entitySlots.length) entitySlots = rehash(entitySlots, code, null);
+            return e;
+        }
+
+        /** Suma unidades a la celda; devuelve true si no existía. */
+        private boolean addCell(int e, int other, int qty) {
+            int mask = cellSlots.length - 1;
+            int slot = mix(e * 31 + other) & mask;
+            for (int c; (c = cellSlots[slot] - 1) >= 0; slot = (slot + 1) & mask) {
+                if (cellEntity[c] == e && cellOther[c] == other) {
+                    cellUnits[c] += qty;
+                    return false;
+                }
+            }
+            int c = cells++;
+            if (c == cellEntity.length) {
+                int len = c * 2;
+                cellEntity = Arrays.copyOf(cellEntity, len);
+                cellOther = Arrays.copyOf(cellOther, len);
+                cellUnits = Arrays.copyOf(cellUnits, len);
+            }
+            cellEntity[c] = e;
+            cellOther[c] = other;
+            cellUnits[c] = qty;
+            cellSlots[slot] = c + 1;
+            if (cells * 2 > cellSlots.length) cellSlots = rehash(cellSlots, cellEntity, cellOther);
+            return true;
+        }
+
+        /** Índice del doble de tamaño; la clave es {@code a[i]} o {@code a[i] * 31 + b[i]}. */
+        private int[] rehash(int[] old, int[] a, int[] b) {
+            int[] slots = new int[old.length * 2];
+            int mask = slots.length - 1;
+            for (int i : old) {
+                if (i == 0) continue;
+                int k = b == null ? a[i - 1] : a[i - 1] * 31 + b[i - 1];
+                int slot = mix(k) & mask;
+                while (slots[slot] != 0) slot = (slot + 1) & mask;
+                slots[slot] = i;
+            }
+            return slots;
+        }
+
+        private int mix(int x) {
+            int h = x * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+
+        /** Distintos y top de cada entidad, igual que SalesAggregates.finishSide. */
+        void finish() {
+            entitySlots = null;
+            cellSlots = null;
+            distinct = new int[entities];
+            top = new int[entities];
+            topUnits = new int[entities];
+            int[] ties = new int[entities];
+            Arrays.fill(top, -1);
+            Arrays.fill(topUnits, -1);
+            for (int c = 0; c < cells; c++) {
+                int e = cellEntity[c];
+                distinct[e]++;
+                if (cellUnits[c] > topUnits[e]) {
+                    topUnits[e] = cellUnits[c];
+                    top[e] = cellOther[c];
+                    ties[e] = 1;
+                } else if (cellUnits[c] == topUnits[e]) {
+                    ties[e]++;
+                }
+            }
+            // Como en finishSide, el piso de 0 unidades se aplica antes de desempatar
+            for (int e = 0; e < entities; e++) if (topUnits[e] < 0) topUnits[e] = 0;
+            // Empates: la cubeta menor y, dentro de ella, la celda creada más tarde (recorrido ascendente)
+            int[] best = new int[entities];
+            for (int e = 0; e < entities; e++) best[e] = ties[e] > 1 ? Integer.MAX_VALUE : -1;
+            for (int c = 0; c < cells; c++) {
+                int e = cellEntity[c];
+                if (best[e] < 0 || cellUnits[c] != topUnits[e]) continue;
+                int o = cellOther[c];
+                int b = bucket(bySeller ? products.id(o) : sellerId(o), hashMapCapacity(distinct[e], endsOnInsert[e]));
+                if (b <= best[e]) {
+                    best[e] = b;
+                    top[e] = o;
+                }
+            }
+            cellEntity = cellOther = cellUnits = null;
+        }
+
+        /** Escribe las entidades ordenadas como en el reporte, con la cubeta del id en el HashMap global. */
+        void writeRun(Path file, int capacity) throws IOException {
+            int[] bucket = new int[entities];
+            int[] order = new int[entities];
+            for (int e = 0; e < entities; e++) {
+                bucket[e] = bucket(bySeller ? sellerId(code[e]) : products.id(code[e]), capacity);
+                order[e] = e;
+            }
+            SalesAggregates.sort(order, (a, b) -> {
+                int c = bySeller ? Long.compare(revenue[b], revenue[a]) : Integer.compare(units[b], units[a]);
+                if (c != 0) return c;
+                c = Integer.compare(bucket[a], bucket[b]);
+                return c != 0 ? c : Long.compare(firstRow[b], firstRow[a]);
+            });
+            try (SpillWriter w = new SpillWriter(file, bufferSize)) {
+                for (int e : order) {
+                    w.write(code[e], units[e], revenue[e], firstRow[e], distinct[e], top[e], topUnits[e], bucket[e]);
+                }
+            }
+        }
+    }
+
+    /* ==================== ARCHIVOS TEMPORALES ==================== */
+
+    /** Registros binarios de tamaño fijo con un búfer propio. */
+    private static final class SpillWriter implements AutoCloseable {
+        private final FileChannel ch;
+        private final ByteBuffer buf;
+
+        SpillWriter(Path file, int bufferSize) throws IOException {
+            ch = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+            buf = ByteBuffer.allocate(bufferSize);
+        }
+
+        void write(int entity, int other, int units, long row) throws IOException {
+            if (buf.remaining() < RECORD) flush();
+            buf.putInt(entity).putInt(other).putInt(units).putLong(row);
+        }
+
+        void write(int code, int units, long revenue, long firstRow, int distinct, int top, int topUnits, int bucket) throws IOException {
+            if (buf.remaining() < RESULT) flush();
+            buf.putInt(code).putInt(units).putLong(revenue).putLong(firstRow)
+               .putInt(distinct).putInt(top).putInt(topUnits).putInt(bucket);
+        }
+
+        private void flush() throws IOException {
+            buf.flip();
+            while (buf.hasRemaining()) ch.write(buf);
+            buf.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                flush();
+            } finally {
+                ch.close();
+            }
+        }
+    }
+
+    /** Lee registros de {@code record} bytes; tras next() el registro está en {@code buf}. */
+    private static final class SpillReader implements AutoCloseable {
+        private final FileChannel ch;
+        private final int record;
+        final ByteBuffer buf;
+
+        SpillReader(Path file, int bufferSize, int record) throws IOException {
+            ch = FileChannel.open(file, StandardOpenOption.READ);
+            this.record = record;
+            buf = ByteBuffer.allocate(Math.max(bufferSize, record));
+            buf.flip();
+        }
+
+        boolean next() throws IOException {
+            if (buf.remaining() < record) {
+                buf.compact();
+                while (buf.hasRemaining() && ch.read(buf) >= 0) { }
+                buf.flip();
+                if (buf.remaining() < record) {
+                    if (buf.hasRemaining()) throw new IOException("Archivo temporal truncado");
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException { ch.close(); }
+    }
+}
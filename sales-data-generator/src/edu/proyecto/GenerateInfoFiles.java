@@ -1,17 +1,26 @@
 package edu.proyecto;
 
-import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.time.LocalDate;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
-import java.util.Locale;
 import java.util.Random;
+import java.util.SplittableRandom;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * GenerateInfoFiles
@@ -29,23 +38,37 @@ import java.util.UUID;
  *  - "ERROR: ..." en caso de fallo
  */
 public class GenerateInfoFiles {
-    // Configuración: cambia cantidades aquí si lo deseas
+    // Configuración por defecto: cambia cantidades aquí o usa las opciones de línea de comandos
     private static final int SELLERS_COUNT  = 8;
     private static final int PRODUCTS_COUNT = 12;
     private static final int SALES_COUNT    = 220;
+    private static final int DAYS           = 60;
 
     private static final Path INPUT_DIR = Paths.get("data", "input");
 
     public static void main(String[] args) {
         try {
+            Options opts = Options.parse(args);
             Files.createDirectories(INPUT_DIR);
-            List<Seller> sellers = RandomData.generateSellers(SELLERS_COUNT);
-            List<Product> products = RandomData.generateProducts(PRODUCTS_COUNT);
-            List<Sale> sales = RandomData.generateSales(SALES_COUNT, sellers, products);
+            // Antes de escribir nada: sin --overwrite no se borran ventas existentes
+            if (opts.split) {
+                List<Path> removed = PartitionedSales.clearSales(INPUT_DIR, opts.overwrite);
+                if (!removed.isEmpty()) System.out.println("Borrados " + removed.size() + " archivos de ventas anteriores: " + names(removed));
+            }
+            List<Seller> sellers = RandomData.generateSellers(opts.sellers, opts.seed + 7);
+            List<Product> products = RandomData.generateProducts(opts.products, opts.seed + 11);
 
             CSV.writeSellers(INPUT_DIR.resolve("sellers.csv"), sellers);
             CSV.writeProducts(INPUT_DIR.resolve("products.csv"), products);
-            CSV.writeSales(INPUT_DIR.resolve("sales.csv"), sales);
+            if (opts.partitioned) {
+                PartitionedSales gen = new PartitionedSales(opts.seed + 23, sellers, products,
+                        Distribution.parse(opts.sellerDist, sellers.size()), Distribution.parse(opts.productDist, products.size()),
+                        opts.from, opts.to);
+                gen.write(INPUT_DIR, opts.sales, opts.threads, opts.split, opts.compress);
+            } else {
+                List<Sale> sales = RandomData.generateSales(SALES_COUNT, sellers, products);
+                CSV.writeSales(INPUT_DIR.resolve("sales.csv"), sales);
+            }
 
             System.out.println("OK: Archivos de entrada generados en " + INPUT_DIR.toAbsolutePath());
         } catch (Exception e) {
@@ -54,6 +77,120 @@ public class GenerateInfoFiles {
         }
     }
 
+    /** Nombres de {@code files} separados por coma; después de los primeros 10 solo cuántos faltan. */
+    private static String names(List<Path> files) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < files.size() && i < 10; i++) {
+            if (i > 0) sb.append(", ");
+            sb.append(files.get(i).getFileName());
+        }
+        if (files.size() > 10) sb.append(" y ").append(files.size() - 10).append(" más");
+        return sb.toString();
+    }
+
+    /* ==================== OPCIONES ==================== */
+
+    /**
+     * Opciones de línea de comandos. Sin argumentos se genera como siempre (SALES_COUNT ventas
+     * en memoria). Con cualquier opción se usa el modo particionado (ver PartitionedSales):
+     *  --sellers N / --products N / --sales N   cantidades (por defecto las constantes de arriba)
+     *  --from AAAA-MM-DD --to AAAA-MM-DD       rango de fechas inclusivo (por defecto los últimos DAYS días)
+     *  --seed N                                semilla base de vendedores, productos y ventas
+     *  --seller-dist D / --product-dist D      elección de vendedor/producto: uniform o zipf:S (S > 0)
+     *  --threads N|auto                        hilos de generación (por defecto: núcleos disponibles)
+     *  --split                                 un archivo sales-NNNNN.csv por partición en lugar de un único sales.csv
+     *  --compress none|gzip                    comprime cada partición (sales-NNNNN.csv.gz); implica --split
+     *  --overwrite                             con --split, borra antes sales.csv, ventas.csv y los sales-* existentes;
+     *                                          sin esta opción, si hay alguno no se genera nada
+     */
+    static final class Options {
+        boolean partitioned;
+        int sellers = SELLERS_COUNT;
+        int products = PRODUCTS_COUNT;
+        long sales = SALES_COUNT;
+        LocalDate from = LocalDate.now().minusDays(DAYS);
+        LocalDate to = LocalDate.now().minusDays(1);
+        // Con la semilla 0 se conservan las semillas históricas (7, 11 y 23)
+        long seed = 0;
+        String sellerDist = "uniform";
+        String productDist = "uniform";
+        int threads = Runtime.getRuntime().availableProcessors();
+        boolean split;
+        SalesFiles.Codec compress = SalesFiles.Codec.NONE;
+        boolean overwrite;
+
+        static Options parse(String[] args) {
+            Options o = new Options();
+            for (int i = 0; i < args.length; i++) {
+                String a = args[i];
+                switch (a) {
+                    case "--sellers":
+                        o.sellers = positive(value(args, ++i, a), a);
+                        break;
+                    case "--products":
+                        o.products = positive(value(args, ++i, a), a);
+                        break;
+                    case "--sales":
+                        o.sales = Long.parseLong(value(args, ++i, a));
+                        if (o.sales < 0) throw new IllegalArgumentException("--sales debe ser >= 0");
+                        break;
+                    case "--from":
+                        o.from = LocalDate.parse(value(args, ++i, a));
+                        break;
+                    case "--to":
+                        o.to = LocalDate.parse(value(args, ++i, a));
+                        break;
+                    case "--seed":
+                        o.seed = Long.parseLong(value(args, ++i, a));
+                        break;
+                    case "--seller-dist":
+                        o.sellerDist = value(args, ++i, a);
+                        Distribution.parse(o.sellerDist, 1);
+                        break;
+                    case "--product-dist":
+                        o.productDist = value(args, ++i, a);
+                        Distribution.parse(o.productDist, 1);
+                        break;
+                    case "--threads": {
+                        String v = value(args, ++i, a);
+                        o.threads = v.equals("auto") ? Runtime.getRuntime().availableProcessors() : Integer.parseInt(v);
+                        if (o.threads < 1) throw new IllegalArgumentException("--threads debe ser >= 1");
+                        break;
+                    }
+                    case "--split":
+                        o.split = true;
+                        break;
+                    case "--compress":
+                        o.compress = SalesFiles.Codec.parse(value(args, ++i, a));
+                        if (o.compress == SalesFiles.Codec.ZSTD) {
+                            throw new IllegalArgumentException("--compress zstd no está disponible: el JDK solo incluye gzip");
+                        }
+                        if (o.compress != SalesFiles.Codec.NONE) o.split = true;
+                        break;
+                    case "--overwrite":
+                        o.overwrite = true;
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Opción desconocida: " + a);
+                }
+                o.partitioned = true;
+            }
+            if (o.to.isBefore(o.from)) throw new IllegalArgumentException("--to (" + o.to + ") es anterior a --from (" + o.from + ")");
+            return o;
+        }
+
+        private static int positive(String v, String name) {
+            int n = Integer.parseInt(v);
+            if (n < 1) throw new IllegalArgumentException(name + " debe ser >= 1");
+            return n;
+        }
+
+        private static String value(String[] args, int i, String name) {
+            if (i >= args.length) throw new IllegalArgumentException("Falta el valor de " + name);
+            return args[i];
+        }
+    }
+
     /* ==================== MODELOS ==================== */
 
     static final class Seller {
@@ -100,43 +237,240 @@ public class GenerateInfoFiles {
 
     static final class CSV {
         static void writeSellers(Path path, List<Seller> list) throws IOException {
-            try (BufferedWriter bw = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
-                bw.write("seller_id,seller_name");
-                bw.newLine();
+            try (CsvWriter w = new CsvWriter(path)) {
+                w.write("seller_id,seller_name").newLine();
                 for (Seller s : list) {
-                    bw.write(s.id + "," + escape(s.name));
-                    bw.newLine();
+                    w.write(s.id).write(',').writeField(s.name).newLine();
                 }
             }
         }
 
         static void writeProducts(Path path, List<Product> list) throws IOException {
-            try (BufferedWriter bw = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
-                bw.write("product_id,product_name,category,unit_price");
-                bw.newLine();
+            try (CsvWriter w = new CsvWriter(path)) {
+                w.write("product_id,product_name,category,unit_price").newLine();
                 for (Product p : list) {
-                    bw.write(p.id + "," + escape(p.name) + "," + escape(p.category) + "," + String.format(Locale.US, "%.2f", p.unitPrice));
-                    bw.newLine();
+                    w.write(p.id).write(',').writeField(p.name).write(',').writeField(p.category).write(',')
+                     .writeFixed2(p.unitPrice).newLine();
                 }
             }
         }
 
         static void writeSales(Path path, List<Sale> list) throws IOException {
-            try (BufferedWriter bw = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
-                bw.write("sale_id,seller_id,product_id,quantity,date");
-                bw.newLine();
+            try (CsvWriter w = new CsvWriter(path)) {
+                w.write("sale_id,seller_id,product_id,quantity,date").newLine();
                 for (Sale s : list) {
-                    bw.write(s.saleId + "," + s.sellerId + "," + s.productId + "," + s.quantity + "," + s.date);
-                    bw.newLine();
+                    w.write(s.saleId).write(',').write(s.sellerId).write(',').write(s.productId).write(',')
+                     .write(s.quantity).write(',').write(s.date.toString()).newLine();
                 }
             }
         }
+    }
 
-        private static String escape(String s) {
-            if (s.contains(",") || s.contains("\"")) {
-                return "\"" + s.replace("\"", "\"\"") + "\"";
+    /**
+     * Generación particionada y determinista de ventas, pensada para volúmenes de miles de millones.
+     * - Las filas se dividen en particiones de ROWS_PER_PARTITION; el tamaño no depende de los hilos.
+     * - Cada partición usa su propio SplittableRandom, obtenido con split() del generador raíz en
+     *   orden de partición, así el resultado es el mismo con cualquier cantidad de hilos.
+     * - sale_id = 16 dígitos hex de un mezclado biyectivo del número de fila: único y reproducible,
+     *   sin el costo de SecureRandom de UUID.randomUUID().
+     * - Nada se acumula en listas: cada partición se escribe en su archivo o se concatena en orden,
+     *   con a lo sumo 2 particiones por hilo en memoria.
+     * - Con archivos por partición, cada hilo comprime las suyas (--compress). Main lee el conjunto
+     *   completo, así que antes hay que borrar las ventas anteriores (clearSales, solo con --overwrite).
+     */
+    static final class PartitionedSales {
+        static final int ROWS_PER_PARTITION = 100_000;
+        private static final String HEADER = "sale_id,seller_id,product_id,quantity,date";
+        private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+        private final long seed;
+        private final List<Seller> sellers;
+        private final List<Product> products;
+        private final Distribution sellerDist;
+        private final Distribution productDist;
+        private final String[] dates;
+
+        PartitionedSales(long seed, List<Seller> sellers, List<Product> products,
+                         Distribution sellerDist, Distribution productDist, LocalDate from, LocalDate to) {
+            this.seed = seed;
+            this.sellers = sellers;
+            this.products = products;
+            this.sellerDist = sellerDist;
+            this.productDist = productDist;
+            int days = (int) (to.toEpochDay() - from.toEpochDay() + 1);
+            this.dates = new String[days];
+            for (int i = 0; i < days; i++) dates[i] = from.plusDays(i).toString();
+        }
+
+        void write(Path dir, long rows, int threads, boolean split, SalesFiles.Codec codec) throws IOException {
+            long partitions = (rows + ROWS_PER_PARTITION - 1) / ROWS_PER_PARTITION;
+            SplittableRandom root = new SplittableRandom(seed);
+            ExecutorService pool = Executors.newFixedThreadPool(threads);
+            try (FileChannel out = split ? null : FileChannel.open(dir.resolve("sales.csv"),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                if (out != null) writeFully(out, (HEADER + System.lineSeparator()).getBytes(StandardCharsets.UTF_8));
+                Deque<Future<byte[]>> pending = new ArrayDeque<>();
+                for (long k = 0; k < partitions; k++) {
+                    final long first = k * ROWS_PER_PARTITION;
+                    final int n = (int) Math.min(ROWS_PER_PARTITION, rows - first);
+                    final SplittableRandom rnd = root.split();
+                    final Path file = split ? dir.resolve(String.format("sales-%05d", k) + codec.extension) : null;
+                    pending.add(pool.submit(() -> {
+                        byte[] bytes = render(first, n, rnd, split);
+                        if (file == null) return bytes;
+                        try (OutputStream os = codec.create(file)) {
+                            os.write(bytes);
+                        }
+                        return null;
+                    }));
+                    if (pending.size() >= 2 * threads) drain(pending.poll(), out);
+                }
+                while (!pending.isEmpty()) drain(pending.poll(), out);
+            } finally {
+                pool.shutdownNow();
+            }
+        }
+
+        /** Filas [first, first + n) de la partición; con {@code header} antepone la cabecera. */
+        byte[] render(long first, int n, SplittableRandom rnd, boolean header) throws IOException {
+            CsvWriter w = new CsvWriter(n * 48);
+            if (header) w.write(HEADER).newLine();
+            char[] id = new char[16];
+            for (int i = 0; i < n; i++) {
+                Seller s = sellers.get(sellerDist.next(rnd));
+                Product p = products.get(productDist.next(rnd));
+                int qty = 1 + rnd.nextInt(8);
+                String date = dates[rnd.nextInt(dates.length)];
+                saleId(first + i, id);
+                w.write(id).write(',').write(s.id).write(',').write(p.id).write(',')
+                 .write(qty).write(',').write(date).newLine();
+            }
+            return w.toByteArray();
+        }
+
+        private void saleId(long row, char[] out) {
+            long v = mix64(row ^ mix64(seed));
+            for (int i = 15; i >= 0; i--) {
+                out[i] = HEX[(int) (v & 0xF)];
+                v >>>= 4;
             }
-            return s;
+        }
+
+        /** Finalizador de SplitMix64: biyectivo, por lo que filas distintas nunca comparten id. */
+        private static long mix64(long z) {
+            z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+            z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+            return z ^ (z >>> 31);
+        }
+
+        private static void drain(Future<byte[]> f, FileChannel out) throws IOException {
+            byte[] bytes;
+            try {
+                bytes = f.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Generación interrumpida", e);
+            } catch (ExecutionException e) {
+                throw new IOException("Falló una partición: " + e.getCause().getMessage(), e.getCause());
+            }
+            if (out != null) writeFully(out, bytes);
+        }
+
+        /**
+         * Ventas que Main leería en lugar de las particiones nuevas (sales.csv, ventas.csv) o junto
+         * con ellas (sales-*). Con {@code overwrite} las borra y devuelve cuáles; sin él, si hay
+         * alguna lanza un error sin tocar nada.
+         */
+        static List<Path> clearSales(Path dir, boolean overwrite) throws IOException {
+            List<Path> found = new ArrayList<>();
+            for (String name : new String[] { "sales.csv", "ventas.csv" }) {
+                if (Files.exists(dir.resolve(name))) found.add(dir.resolve(name));
+            }
+            found.addAll(SalesFiles.find(dir));
+            if (found.isEmpty()) return found;
+            if (!overwrite) {
+                throw new IOException("Ya hay " + found.size() + " archivos de ventas en " + dir.toAbsolutePath()
+                        + " (" + names(found) + "); --split los reemplazaría. Use --overwrite para borrarlos");
+            }
+            for (Path p : found) Files.delete(p);
+            return found;
+        }
+
+        private static void writeFully(FileChannel out, byte[] bytes) throws IOException {
+            ByteBuffer bb = ByteBuffer.wrap(bytes);
+            while (bb.hasRemaining()) out.write(bb);
+        }
+    }
+
+    /** Elección de un índice en [0, n) para vendedores y productos. */
+    interface Distribution {
+        int next(SplittableRandom rnd);
+
+        /** "uniform" o "zipf:S"; con Zipf el índice 0 es el más frecuente. */
+        static Distribution parse(String spec, int n) {
+            if (spec.equals("uniform")) return rnd -> rnd.nextInt(n);
+            if (spec.startsWith("zipf:")) return new Zipf(n, Double.parseDouble(spec.substring(5)));
+            throw new IllegalArgumentException("Distribución desconocida: " + spec + " (use uniform o zipf:S)");
+        }
+    }
+
+    /**
+     * Zipf de exponente s sobre n elementos: P(k) proporcional a 1/k^s.
+     * Muestreo por rechazo-inversión (Hörmann y Derflinger): O(1) por muestra y sin tabla
+     * acumulada, por lo que sirve igual para 10 que para millones de elementos.
+     * Inmutable: se comparte entre hilos, cada uno con su propio SplittableRandom.
+     */
+    static final class Zipf implements Distribution {
+        private final int n;
+        private final double exponent;
+        private final double hIntegralX1;
+        private final double hIntegralN;
+        private final double s;
+
+        Zipf(int n, double exponent) {
+            if (!(exponent > 0)) throw new IllegalArgumentException("El exponente Zipf debe ser > 0: " + exponent);
+            this.n = n;
+            this.exponent = exponent;
+            this.hIntegralX1 = hIntegral(1.5) - 1d;
+            this.hIntegralN = hIntegral(n + 0.5);
+            this.s = 2d - hIntegralInverse(hIntegral(2.5) - h(2));
+        }
+
+        @Override
+        public int next(SplittableRandom rnd) {
+            while (true) {
+                double u = hIntegralN + rnd.nextDouble() * (hIntegralX1 - hIntegralN);
+                double x = hIntegralInverse(u);
+                int k = (int) (x + 0.5);
+                if (k < 1) k = 1;
+                else if (k > n) k = n;
+                if (k - x <= s || u >= hIntegral(k + 0.5) - h(k)) return k - 1;
+            }
+        }
+
+        private double hIntegral(double x) {
+            double logX = Math.log(x);
+            return helper2((1d - exponent) * logX) * logX;
+        }
+
+        private double h(double x) {
+            return Math.exp(-exponent * Math.log(x));
+        }
+
+        private double hIntegralInverse(double x) {
+            double t = x * (1d - exponent);
+            if (t < -1d) t = -1d;
+            return Math.exp(helper1(t) * x);
+        }
+
+        /** log1p(x)/x, estable cerca de 0. */
+        private static double helper1(double x) {
+            return Math.abs(x) > 1e-8 ? Math.log1p(x) / x : 1d - x * (0.5 - x * (1d / 3 - x * 0.25));
+        }
+
+        /** expm1(x)/x, estable cerca de 0. */
+        private static double helper2(double x) {
+            return Math.abs(x) > 1e-8 ? Math.expm1(x) / x : 1d + x * 0.5 * (1d + x / 3 * (1d + x * 0.25));
         }
     }
 
@@ -155,7 +489,11 @@ public class GenerateInfoFiles {
         };
 
         static List<Seller> generateSellers(int n) {
-            Random r = new Random(7);
+            return generateSellers(n, 7);
+        }
+
+        static List<Seller> generateSellers(int n, long seed) {
+            Random r = new Random(seed);
             List<Seller> out = new ArrayList<>();
             for (int i = 0; i < n; i++) {
                 String id = String.format("S%03d", i+1);
@@ -166,7 +504,11 @@ public class GenerateInfoFiles {
         }
 
         static List<Product> generateProducts(int n) {
-            Random r = new Random(11);
+            return generateProducts(n, 11);
+        }
+
+        static List<Product> generateProducts(int n, long seed) {
+            Random r = new Random(seed);
             List<Product> out = new ArrayList<>();
             for (int i = 0; i < n; i++) {
                 String id = String.format("P%03d", i+1);
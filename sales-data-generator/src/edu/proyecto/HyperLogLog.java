@@ -0,0 +1,198 @@
+package edu.proyecto;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * HyperLogLog
+ * -----------
+ * Cantidad aproximada de elementos distintos con 2^precision registros de un byte.
+ * - Los elementos llegan ya convertidos en un hash de 64 bits (ver hash()); los primeros
+ *   {@code precision} bits eligen el registro y el resto da la cantidad de ceros iniciales.
+ * - Error estándar relativo ~ 1,04 / sqrt(2^precision) (ver relativeError); con pocos
+ *   elementos se usa conteo lineal, prácticamente exacto.
+ * - Mientras hay pocos elementos se guarda una tabla chica (registro, valor) con precisión
+ *   SPARSE_PRECISION en lugar del arreglo completo, como en HyperLogLog++: una entidad con pocas
+ *   ventas ocupa unos pocos bytes y su cuenta es prácticamente exacta (conteo lineal sobre
+ *   2^25 registros). Al crecer se convierte a los 2^precision registros sin perder información.
+ * - Dos sketches con la misma precisión se combinan tomando el máximo de cada registro, así que
+ *   los tramos paralelos y las ejecuciones incrementales se suman sin perder nada.
+ */
+final class HyperLogLog {
+
+    static final int MIN_PRECISION = 4;
+    static final int MAX_PRECISION = 18;
+    private static final int SPARSE_PRECISION = 25;
+
+    private final int precision;
+    private byte[] registers;             // null mientras se usa la tabla chica
+    private int[] sparse = new int[4];    // registro de 25 bits << 6 | valor (0 = vacío), sondeo lineal
+    private int sparseSize;
+
+    HyperLogLog(int precision) {
+        if (precision < MIN_PRECISION || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("Precisión de HyperLogLog fuera de rango [" + MIN_PRECISION + ", " + MAX_PRECISION + "]: " + precision);
+        }
+        this.precision = precision;
+    }
+
+    /** Error estándar relativo de la estimación con esa precisión. */
+    static double relativeError(int precision) {
+        return 1.04 / Math.sqrt(1 << precision);
+    }
+
+    /** Hash de 64 bits de un código (finalizador de MurmurHash3). */
+    static long hash(long code) {
+        long h = code;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /** Hash de 64 bits de un id (FNV-1a de sus bytes UTF-8, luego mezclado). */
+    static long hash(String id) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : id.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b & 0xff;
+            h *= 0x100000001b3L;
+        }
+        return hash(h);
+    }
+
+    void add(long hash) {
+        if (registers != null) {
+            int index = (int) (hash >>> (64 - precision));
+            int rho = Long.numberOfLeadingZeros((hash << precision) | (1L << (precision - 1))) + 1;
+            if (rho > registers[index]) registers[index] = (byte) rho;
+            return;
+        }
+        int index = (int) (hash >>> (64 - SPARSE_PRECISION));
+        int rho = Long.numberOfLeadingZeros((hash << SPARSE_PRECISION) | (1L << (SPARSE_PRECISION - 1))) + 1;
+        setSparse(index, rho);
+    }
+
+    /**
+     * Registro de {@code precision} bits equivalente a una entrada de la tabla chica: los bits
+     * extra del índice, si alguno es 1, ya dicen dónde está el primer 1 del hash.
+     */
+    private void setDense(int sparseIndex, int sparseRho) {
+        int extra = SPARSE_PRECISION - precision;
+        int index = sparseIndex >>> extra;
+        int w = sparseIndex & ((1 << extra) - 1);
+        int rho = w != 0 ? Integer.numberOfLeadingZeros(w) - (32 - extra) + 1 : extra + sparseRho;
+        if (rho > registers[index]) registers[index] = (byte) rho;
+    }
+
+    private void setSparse(int index, int rho) {
+        if (registers != null) {
+            setDense(index, rho);
+            return;
+        }
+        int mask = sparse.length - 1;
+        for (int slot = mix(index) & mask; ; slot = (slot + 1) & mask) {
+            int e = sparse[slot];
+            if (e == 0) {
+                sparse[slot] = index << 6 | rho;
+                if (++sparseSize * 2 > sparse.length) growSparse();
+                return;
+            }
+            if (e >>> 6 == index) {
+                if (rho > (e & 63)) sparse[slot] = index << 6 | rho;
+                return;
+            }
+        }
+    }
+
+    /** Duplica la tabla chica o, si ya ocuparía tanto como los registros, pasa a la forma completa. */
+    private void growSparse() {
+        int[] old = sparse;
+        if (old.length * 2 * Integer.BYTES >= 1 << precision) {
+            toDense();
+            return;
+        }
+        sparse = new int[old.length * 2];
+        sparseSize = 0;
+        for (int e : old) if (e != 0) setSparse(e >>> 6, e & 63);
+    }
+
+    private void toDense() {
+        int[] old = sparse;
+        registers = new byte[1 << precision];
+        sparse = null;
+        sparseSize = 0;
+        for (int e : old) if (e != 0) setDense(e >>> 6, e & 63);
+    }
+
+    private static int mix(int x) {
+        int h = x * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /** Suma otro sketch de la misma precisión. */
+    void mergeFrom(HyperLogLog other) {
+        if (other.precision != precision) throw new IllegalArgumentException("No se pueden combinar HyperLogLog de distinta precisión");
+        if (other.registers != null) {
+            if (registers == null) toDense();
+            for (int i = 0; i < registers.length; i++) {
+                if (other.registers[i] > registers[i]) registers[i] = other.registers[i];
+            }
+            return;
+        }
+        for (int e : other.sparse) if (e != 0) setSparse(e >>> 6, e & 63);
+    }
+
+    /** Cantidad estimada de elementos distintos. */
+    long estimate() {
+        if (registers == null) {
+            // Conteo lineal sobre los 2^25 registros de la tabla chica, que nunca se llena
+            double m = 1 << SPARSE_PRECISION;
+            return Math.round(m * Math.log(m / (m - sparseSize)));
+        }
+        int m = 1 << precision;
+        double sum = 0;
+        int zeros = 0;
+        for (byte r : registers) {
+            sum += 1.0 / (1L << r);
+            if (r == 0) zeros++;
+        }
+        double alpha = m == 16 ? 0.673 : m == 32 ? 0.697 : m == 64 ? 0.709 : 0.7213 / (1 + 1.079 / m);
+        double raw = alpha * m * m / sum;
+        // Rango chico: conteo lineal sobre los registros vacíos
+        if (raw <= 2.5 * m && zeros > 0) return Math.round(m * Math.log((double) m / zeros));
+        return Math.round(raw);
+    }
+
+    /* ==================== PERSISTENCIA ==================== */
+
+    void writeTo(DataOutput out) throws IOException {
+        if (registers != null) {
+            out.writeInt(-1);
+            out.write(registers);
+            return;
+        }
+        out.writeInt(sparseSize);
+        for (int e : sparse) if (e != 0) out.writeInt(e);
+    }
+
+    /** Lee un sketch escrito con {@link #writeTo} con la misma precisión. */
+    static HyperLogLog readFrom(DataInput in, int precision) throws IOException {
+        HyperLogLog h = new HyperLogLog(precision);
+        int n = in.readInt();
+        if (n < 0) {
+            h.registers = new byte[1 << precision];
+            h.sparse = null;
+            in.readFully(h.registers);
+            return h;
+        }
+        for (int i = 0; i < n; i++) {
+            int e = in.readInt();
+            h.setSparse(e >>> 6, e & 63);
+        }
+        return h;
+    }
+}
@@ -0,0 +1,108 @@
+package edu.proyecto;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * IdDictionary
+ * ------------
+ * Asigna a cada identificador (seller_id, product_id) un código entero denso 0..n-1.
+ * - Se consulta directamente con los bytes UTF-8 de un campo del CsvTokenizer,
+ *   sin crear un String por fila.
+ * - Tabla de direccionamiento abierto (sondeo lineal) con el hash de los bytes guardado por código.
+ * - No es thread-safe para escritura: los diccionarios compartidos entre hilos solo se leen.
+ */
+final class IdDictionary {
+
+    private int[] table = new int[16];   // slot -> código + 1 (0 = vacío)
+    private byte[][] keys = new byte[16][];
+    private int[] hashes = new int[16];
+    private String[] ids = new String[16];
+    private int size;
+
+    int size() { return size; }
+
+    String id(int code) { return ids[code]; }
+
+    /** Devuelve el código del identificador, agregándolo si no existía. */
+    int intern(String id) {
+        byte[] key = id.getBytes(StandardCharsets.UTF_8);
+        int h = hash(key, 0, key.length);
+        int code = find(key, 0, key.length, h);
+        return code >= 0 ? code : add(key, h, id);
+    }
+
+    /** Código del identificador o -1 si no existe. */
+    int find(String id) {
+        byte[] key = id.getBytes(StandardCharsets.UTF_8);
+        return find(key, 0, key.length, hash(key, 0, key.length));
+    }
+
+    /** Código del campo {@code field} de la fila actual o -1 si no existe. */
+    int find(CsvTokenizer row, int field) {
+        if (row.isQuoted(field)) return find(row.string(field));
+        byte[] buf = row.buffer();
+        int from = row.start(field);
+        int to = row.end(field);
+        return find(buf, from, to, hash(buf, from, to));
+    }
+
+    /** Como {@link #find(CsvTokenizer, int)}, pero agrega el identificador si no existía. */
+    int intern(CsvTokenizer row, int field) {
+        int code = find(row, field);
+        return code >= 0 ? code : intern(row.string(field));
+    }
+
+    private int find(byte[] buf, int from, int to, int h) {
+        int mask = table.length - 1;
+        for (int slot = h & mask; ; slot = (slot + 1) & mask) {
+            int c = table[slot] - 1;
+            if (c < 0) return -1;
+            if (hashes[c] == h && equals(keys[c], buf, from, to)) return c;
+        }
+    }
+
+    private int add(byte[] key, int h, String id) {
+        if (size == keys.length) {
+            int len = size * 2;
+            keys = Arrays.copyOf(keys, len);
+            hashes = Arrays.copyOf(hashes, len);
+            ids = Arrays.copyOf(ids, len);
+        }
+        int code = size++;
+        keys[code] = key;
+        hashes[code] = h;
+        ids[code] = id;
+        if (size * 2 > table.length) rehash(table.length * 2);
+        else place(code);
+        return code;
+    }
+
+    private void rehash(int capacity) {
+        table = new int[capacity];
+        for (int c = 0; c < size; c++) place(c);
+    }
+
+    private void place(int code) {
+        int mask = table.length - 1;
+        int slot = hashes[code] & mask;
+        while (table[slot] != 0) slot = (slot + 1) & mask;
+        table[slot] = code + 1;
+    }
+
+    private static boolean equals(byte[] key, byte[] buf, int from, int to) {
+        if (key.length != to - from) return false;
+        for (int i = 0; i < key.length; i++) {
+            if (key[i] != buf[from + i]) return false;
+        }
+        return true;
+    }
+
+    private static int hash(byte[] buf, int from, int to) {
+        int h = 0x811c9dc5;
+        for (int i = from; i < to; i++) {
+            h = (h ^ buf[i]) * 0x01000193;
+        }
+        return h ^ (h >>> 15);
+    }
+}
@@ -1,20 +1,20 @@
 package edu.proyecto;
 
-import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.IOException;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.time.LocalDate;
+import java.time.YearMonth;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Comparator;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
-import java.util.Map;
+import java.util.function.IntFunction;
 
 /**
  * Main (compatibilidad con generadores de terceros)
@@ -27,102 +27,564 @@ public class Main {
 
     private static final Path INPUT_DIR = Paths.get("data", "input");
     private static final Path OUTPUT_DIR = Paths.get("data", "output");
+    private static final String SNAPSHOT_FILE = "sales_state.bin";
+    private static final String CACHE_FILE = "sales.columns";
+    private static final String INDEX_FILE = "sales_by_day.idx";
+    private static final String PROFILE_FILE = "run_profile.json";
+    private static final String REJECTS_FILE = "rejects.csv";
 
     public static void main(String[] args) {
         try {
+            Options opts = Options.parse(args);
+            if (opts.watch) {
+                SalesDaemon.run(opts, INPUT_DIR);
+                return;
+            }
+            run(opts, null);
+            System.out.println("OK: Reportes generados en " + OUTPUT_DIR.toAbsolutePath());
+        } catch (Exception e) {
+            System.err.println("ERROR: No fue posible generar los reportes. " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Una pasada completa: dimensiones, ventas, reportes y perfil. {@code warm} es el estado que
+     * conserva el modo servicio entre pasadas (null en una ejecución normal).
+     */
+    static void run(Options opts, Warm warm) throws IOException {
+        try (RunMetrics metrics = new RunMetrics()) {
             Files.createDirectories(OUTPUT_DIR);
 
             Path sellersFile  = firstExisting(INPUT_DIR, "sellers.csv", "vendedores.csv");
             Path productsFile = firstExisting(INPUT_DIR, "products.csv", "productos.csv");
             Path salesFile    = firstExisting(INPUT_DIR, "sales.csv", "ventas.csv");
+            // Sin un único archivo de ventas, el conjunto sales-*.csv[.gz] (ver SalesFiles)
+            List<Path> salesFiles = salesFile == null ? SalesFiles.find(INPUT_DIR) : Collections.emptyList();
 
-            if (sellersFile == null || productsFile == null || salesFile == null) {
+            if (sellersFile == null || productsFile == null || (salesFile == null && salesFiles.isEmpty())) {
                 throw new IOException("No se encontraron todos los archivos requeridos en " + INPUT_DIR.toAbsolutePath()
-                    + ". Esperados: sellers.csv/vendedores.csv, products.csv/productos.csv, sales.csv/ventas.csv");
+                    + ". Esperados: sellers.csv/vendedores.csv, products.csv/productos.csv, sales.csv/ventas.csv o "
+                    + SalesFiles.GLOB);
             }
 
-            List<Seller> sellers = readSellers(sellersFile);
-            List<Product> products = readProducts(productsFile);
-            List<Sale> sales = readSales(salesFile);
+            RunMetrics.Stage st = metrics.begin("read_dimensions");
+            long dimensionsCrc = SalesSnapshot.checksum(sellersFile, productsFile);
+            Dimensions dims;
+            if (warm != null && warm.dims != null && warm.dimensionsCrc == dimensionsCrc) {
+                dims = warm.dims;
+                st.end(0, Files.size(sellersFile) + Files.size(productsFile));
+            } else {
+                dims = new Dimensions(readSellers(sellersFile), readProducts(productsFile));
+                st.end(dims.sellerCount + dims.productCount, Files.size(sellersFile) + Files.size(productsFile));
+                if (warm != null) warm.reset(dims, dimensionsCrc);
+            }
+            if (salesFile == null) {
+                processSalesFiles(opts, dims, salesFiles, metrics, warm);
+                metrics.write(OUTPUT_DIR.resolve(PROFILE_FILE));
+                return;
+            }
+            if (warm != null) warm.clearFiles();
+            Path indexFile = OUTPUT_DIR.resolve(INDEX_FILE);
+
+            // Consulta por fechas: si el índice está al día no hace falta tocar las ventas (salvo con --full)
+            DateIndex index = opts.hasRange() && !opts.full ? DateIndex.open(indexFile, salesFile, dimensionsCrc) : null;
+            if (opts.memoryLimit > 0) {
+                processSalesExternal(opts, dims, dims.sellerCount, dims.productCount, salesFile, metrics);
+            } else if (index == null) {
+                processSales(opts, dims, salesFile, dimensionsCrc, indexFile, metrics, warm);
+                if (opts.hasRange()) {
+                    index = DateIndex.open(indexFile, salesFile, dimensionsCrc);
+                    if (index == null) throw new IOException("sales.csv cambió durante el procesamiento; vuelva a ejecutar la consulta por fechas");
+                }
+            } else {
+                metrics.reading = "índice por fecha";
+            }
+            if (index != null) {
+                try (DateIndex idx = index) {
+                    writeRangeReports(idx, opts, dims, metrics);
+                }
+            }
+            metrics.write(OUTPUT_DIR.resolve(PROFILE_FILE));
+        }
+    }
 
-            Map<String, Seller> sellersById = new HashMap<>();
-            for (Seller s : sellers) sellersById.put(s.id, s);
-            Map<String, Product> productsById = new HashMap<>();
-            for (Product p : products) productsById.put(p.id, p);
+    /**
+     * Lo que el modo servicio conserva entre pasadas: las dimensiones, mientras sellers.csv y
+     * products.csv no cambien, y el último punto de control de las ventas, mientras sales.csv
+     * solo crezca. El punto de control se guarda en disco con {@link #persist} (al terminar el
+     * servicio) en lugar de en cada pasada.
+     * Con varios archivos de ventas se conservan en cambio la huella del conjunto leído y sus
+     * agregados, mientras el conjunto solo gane archivos al final; esos no se guardan en disco.
+     */
+    static final class Warm {
+        private Dimensions dims;
+        private long dimensionsCrc;
+        private SalesSnapshot sales;
+        private Path salesFile;
+        private boolean unsaved;
+        private SalesFiles.Fingerprint files;
+        private SalesAggregates filesAgg;
+        private long filesLines;
+        private long[] filesRejects;
+        private long filesRejectsBytes;
+
+        /** Dimensiones nuevas: el punto de control anterior ya no sirve. */
+        private void reset(Dimensions dims, long dimensionsCrc) {
+            this.dims = dims;
+            this.dimensionsCrc = dimensionsCrc;
+            sales = null;
+            unsaved = false;
+            clearFiles();
+        }
 
-            Map<String, SellerAgg> aggBySeller = new HashMap<>();
-            Map<String, ProductAgg> aggByProduct = new HashMap<>();
+        /** Olvida el conjunto de archivos leído (cambió el modo de entrada o las dimensiones). */
+        private void clearFiles() {
+            files = null;
+            filesAgg = null;
+            filesRejects = null;
+        }
 
-            for (Sale sale : sales) {
-                Product p = productsById.get(sale.productId);
-                if (p == null) continue;
-                double lineTotal = p.unitPrice * sale.quantity;
+        /** Guarda en disco el punto de control que todavía no se guardó. */
+        void persist() throws IOException {
+            if (sales == null || !unsaved) return;
+            sales.save(OUTPUT_DIR.resolve(SNAPSHOT_FILE), salesFile, dimensionsCrc);
+            unsaved = false;
+        }
+    }
 
-                SellerAgg sa = aggBySeller.computeIfAbsent(sale.sellerId, k -> new SellerAgg());
-                sa.units += sale.quantity;
-                sa.revenue += lineTotal;
-                sa.productUnits.merge(sale.productId, sale.quantity, Integer::sum);
+    /**
+     * Lee las ventas (de forma incremental, desde la caché columnar o completas), escribe los
+     * reportes, el resumen, el estado y, si se pidió (--from/--to o --index), el índice por fecha.
+     * En modo servicio ({@code warm} no null) parte del punto de control en memoria y guarda el
+     * estado solo si hace falta.
+     */
+    private static void processSales(Options opts, Dimensions dims, Path salesFile, long dimensionsCrc, Path indexFile,
+                                     RunMetrics metrics, Warm warm) throws IOException {
+        // Agregación en streaming: cada venta se acumula y se descarta, sin materializar List<Sale>.
+        // Si hay un estado guardado y sales.csv solo creció, se continúa desde el punto de control.
+        Path snapshotFile = OUTPUT_DIR.resolve(SNAPSHOT_FILE);
+        RunMetrics.Stage st = metrics.begin("load_state");
+        SalesSnapshot snapshot = null;
+        boolean fromWarm = false;
+        if (warm != null && warm.sales != null && warm.salesFile.equals(salesFile) && warm.sales.extendedBy(salesFile)) {
+            snapshot = warm.sales;
+            fromWarm = true;
+        } else {
+            if (warm != null) warm.sales = null;
+            if (!opts.full) snapshot = SalesSnapshot.load(snapshotFile, salesFile, dimensionsCrc, dims, opts.topCounters(), opts.distinctPrecision());
+        }
+        st.end(snapshot != null ? snapshot.lines : 0, snapshot != null && !fromWarm ? Files.size(snapshotFile) : 0);
+        SalesAggregates agg = snapshot != null ? snapshot.aggregates : dims.newAggregates(opts.topCounters(), opts.distinctPrecision());
+        long from = snapshot != null ? snapshot.offset : 0;
+        long salesCount = snapshot != null ? snapshot.lines : 0;
+        SalesRejects rejects = new SalesRejects(opts.maxErrors);
+        if (snapshot != null) rejects.restore(snapshot.rejects);
+
+        // Sin estado guardado, la caché columnar (si está al día) evita volver a parsear el CSV;
+        // solo se usa si no descartaría ninguna fila, así rejects.csv siempre sale del CSV
+        Path cacheFile = OUTPUT_DIR.resolve(CACHE_FILE);
+        boolean fromCache = false;
+        if (snapshot == null) {
+            try (ColumnarSalesCache cache = opts.cache ? ColumnarSalesCache.openOrBuild(cacheFile, salesFile)
+                                                       : ColumnarSalesCache.open(cacheFile, salesFile)) {
+                if (cache != null && cache.covers(dims.productIds)) {
+                    st = metrics.begin("read_cache");
+                    SalesAggregates[] parts = parts(agg, opts.threadsFor(cache.offset));
+                    salesCount = cache.aggregate(parts);
+                    merge(parts);
+                    from = cache.offset;
+                    fromCache = true;
+                    st.end(salesCount, Files.size(cacheFile));
+                    metrics.salesBytes += Files.size(cacheFile);
+                }
+            }
+        } else if (opts.cache) {
+            ColumnarSalesCache cache = ColumnarSalesCache.openOrBuild(cacheFile, salesFile);
+            if (cache != null) cache.close();
+        }
 
-                ProductAgg pa = aggByProduct.computeIfAbsent(sale.productId, k -> new ProductAgg());
-                pa.units += sale.quantity;
-                pa.revenue += lineTotal;
-                pa.sellersUnits.merge(sale.sellerId, sale.quantity, Integer::sum);
+        long size = Files.size(salesFile);
+        long mtime = Files.getLastModifiedTime(salesFile).toMillis();
+        long committed;
+        try (FileChannel ch = FileChannel.open(salesFile, StandardOpenOption.READ)) {
+            committed = ChunkedSalesReader.lastLineEnd(ch, from, size);
+        }
+        try {
+            // rejects.csv se continúa desde el punto de control; la cabecera es la línea 1
+            rejects.log(OUTPUT_DIR.resolve(REJECTS_FILE), snapshot != null ? snapshot.rejectsBytes : 0,
+                    SalesRejects.FIRST_LINE + salesCount);
+            st = metrics.begin("parse_sales");
+            // El punto de control en memoria es de warm: las filas nuevas se suman aparte y se combinan
+            // solo si la lectura termina bien, así una pasada fallida no lo deja a medio sumar
+            SalesAggregates target = fromWarm ? agg.emptyCopy() : agg;
+            long parsed = readSalesRange(salesFile, from, committed, target, opts.threadsFor(committed - from), rejects);
+            if (fromWarm) {
+                // Desde aquí el punto de control anterior ya no coincide con sus agregados
+                warm.sales = null;
+                agg.mergeFrom(target);
+            }
+            st.end(parsed, committed - from);
+            salesCount += parsed;
+            // En modo servicio el estado queda en memoria; se guarda antes de sumar una última línea sin
+            // terminador, que entra en los reportes pero no en el estado (puede seguir creciendo)
+            SalesSnapshot checkpoint = SalesSnapshot.of(salesFile, committed, size, mtime, salesCount, agg,
+                    rejects.counts(), rejects.sync());
+            if (warm == null || committed < size) {
+                st = metrics.begin("save_state");
+                checkpoint.save(snapshotFile, salesFile, dimensionsCrc);
+                st.end(salesCount, Files.size(snapshotFile));
             }
+            if (warm != null) {
+                warm.sales = committed < size ? null : checkpoint;
+                warm.salesFile = salesFile;
+                warm.unsaved = committed == size;
+            }
+            if (committed < size) {
+                st = metrics.begin("parse_sales_tail");
+                long tail = ChunkedSalesReader.read(salesFile, committed, size, new SaleSink[] { agg }, rejects);
+                st.end(tail, size - committed);
+                salesCount += tail;
+            }
+        } finally {
+            rejects.close();
+        }
+        metrics.salesBytes += size - from;
+        st = metrics.begin("aggregate_finish");
+        agg.finish();
+        st.end(agg.rows(), 0);
+        // El índice solo sirve para consultas por fecha: se escribe cuando se pide (etapa write_index del perfil)
+        if (opts.hasRange() || opts.index) {
+            st = metrics.begin("write_index");
+            DateIndex.write(indexFile, salesFile, dimensionsCrc, size, mtime, agg);
+            st.end(0, Files.size(indexFile));
+        }
 
-            Path r1 = OUTPUT_DIR.resolve("report_sales_by_seller.csv");
-            try (BufferedWriter bw = Files.newBufferedWriter(r1, StandardCharsets.UTF_8)) {
-                bw.write("seller_id,seller_name,total_units,total_revenue,distinct_products,top_product_id,top_product_units");
-                bw.newLine();
-                List<Map.Entry<String,SellerAgg>> rows = new ArrayList<>(aggBySeller.entrySet());
-                Collections.sort(rows, Comparator.comparingDouble((Map.Entry<String,SellerAgg> e) -> e.getValue().revenue).reversed());
-                for (Map.Entry<String,SellerAgg> e : rows) {
-                    String sid = e.getKey();
-                    Seller s = sellersById.get(sid);
-                    SellerAgg sa = e.getValue();
-                    String topProd = topKey(sa.productUnits);
-                    int topUnits = sa.productUnits.getOrDefault(topProd, 0);
-                    bw.write(sid + "," + csv(s == null ? "DESCONOCIDO" : s.name) + "," + sa.units + "," +
-                             String.format(Locale.US, "%.2f", sa.revenue) + "," + sa.productUnits.size() + "," +
-                             (topProd == null ? "" : topProd) + "," + topUnits);
-                    bw.newLine();
-                }
+        String reading = snapshot != null ? "incremental" + (fromWarm ? " en memoria" : "") + " (" + (size - from) + " bytes nuevos desde el byte " + from + ")"
+                : fromCache ? "caché columnar " + cacheFile.getFileName()
+                : "completa";
+        writeReports(opts, dims, agg, salesCount, reading, rejects, metrics);
+    }
+
+    /** Reportes por vendedor, producto y mes y resumen.txt a partir de los agregados ya terminados. */
+    private static void writeReports(Options opts, Dimensions dims, SalesAggregates agg, long salesCount, String reading,
+                                     SalesRejects rejects, RunMetrics metrics) throws IOException {
+        RunMetrics.Stage st = metrics.begin("sort_sellers");
+        int[] rankedSellers = agg.rankedSellers(opts.top);
+        st.end(rankedSellers.length, 0);
+        Path sellerReport = OUTPUT_DIR.resolve("report_sales_by_seller.csv");
+        st = metrics.begin("write_sellers_report");
+        writeSellerReport(sellerReport, agg, dims.sellerNames, rankedSellers);
+        st.end(rankedSellers.length, Files.size(sellerReport));
+        st = metrics.begin("sort_products");
+        int[] rankedProducts = agg.rankedProducts(opts.top);
+        st.end(rankedProducts.length, 0);
+        Path productReport = OUTPUT_DIR.resolve("report_products_by_quantity.csv");
+        st = metrics.begin("write_products_report");
+        writeProductReport(productReport, agg, dims.productNames, rankedProducts);
+        st.end(rankedProducts.length, Files.size(productReport));
+        st = metrics.begin("write_monthly_reports");
+        writeMonthlyReport(OUTPUT_DIR.resolve("report_sellers_by_month.csv"),
+                "month,seller_id,seller_name,total_units,total_revenue", agg.sellerDays().sorted(), agg.sellerCodes(),
+                agg::sellerId, s -> s < dims.sellerNames.length ? dims.sellerNames[s] : null);
+        writeMonthlyReport(OUTPUT_DIR.resolve("report_products_by_month.csv"),
+                "month,product_id,product_name,total_units,total_revenue", agg.productDays().sorted(), dims.productNames.length,
+                agg::productId, p -> dims.productNames[p]);
+        st.end(0, Files.size(OUTPUT_DIR.resolve("report_sellers_by_month.csv")) + Files.size(OUTPUT_DIR.resolve("report_products_by_month.csv")));
+
+        metrics.reading = reading;
+        metrics.salesRows = salesCount;
+        metrics.salesRejected = rejects.total();
+        st = metrics.begin("write_summary");
+        try (BufferedWriter bw = openSummary(dims.sellerCount, dims.productCount, salesCount, reading, rejects)) {
+            if (opts.top > 0) bw.write("Reportes por vendedor y producto: solo los " + opts.top + " primeros\n");
+            if (agg.topCounters() > 0) {
+                SpaceSaving bySeller = agg.sellerTopSketch();
+                SpaceSaving byProduct = agg.productTopSketch();
+                bw.write("Top por entidad: aproximado (Space-Saving, " + agg.topCounters() + " contadores por entidad)\n");
+                bw.write(bySeller.exact() && byProduct.exact()
+                        ? "  - Sin desalojos: top_*_units es exacto\n"
+                        : "  - Error máximo del top: " + Math.max(bySeller.maxTopError(), byProduct.maxTopError()) + " unidades\n");
+                bw.write("distinct_*: aproximado (HyperLogLog de 2^" + agg.distinctPrecision() + " registros, error estándar ±"
+                        + String.format(Locale.US, "%.2f", 100 * HyperLogLog.relativeError(agg.distinctPrecision()))
+                        + "%, ±" + String.format(Locale.US, "%.2f", 300 * HyperLogLog.relativeError(agg.distinctPrecision()))
+                        + "% en el 99% de los casos)\n");
+            } else if (opts.approximate()) {
+                bw.write("Top por entidad y distinct_*: exactos (la matriz vendedor×producto cabe en memoria)\n");
             }
+            if (opts.top > 0 || opts.approximate()) bw.write("\n");
+            bw.write("Reportes generados en: " + OUTPUT_DIR.toAbsolutePath() + "\n");
+        }
+        st.end();
+    }
 
-            Path r2 = OUTPUT_DIR.resolve("report_products_by_quantity.csv");
-            try (BufferedWriter bw = Files.newBufferedWriter(r2, StandardCharsets.UTF_8)) {
-                bw.write("product_id,product_name,total_units,total_revenue,distinct_sellers,top_seller_id,top_seller_units");
-                bw.newLine();
-                List<Map.Entry<String,ProductAgg>> rows = new ArrayList<>(aggByProduct.entrySet());
-                Collections.sort(rows, Comparator.comparingInt((Map.Entry<String,ProductAgg> e) -> e.getValue().units).reversed());
-                for (Map.Entry<String,ProductAgg> e : rows) {
-                    String pid = e.getKey();
-                    Product p = productsById.get(pid);
-                    ProductAgg pa = e.getValue();
-                    String topSeller = topKey(pa.sellersUnits);
-                    int topUnits = pa.sellersUnits.getOrDefault(topSeller, 0);
-                    bw.write(pid + "," + csv(p == null ? "DESCONOCIDO" : p.name) + "," + pa.units + "," +
-                             String.format(Locale.US, "%.2f", pa.revenue) + "," + pa.sellersUnits.size() + "," +
-                             (topSeller == null ? "" : topSeller) + "," + topUnits);
-                    bw.newLine();
-                }
+    /**
+     * Con --memory-limit: reportes por vendedor y producto con agregación externa por particiones
+     * (ExternalAggregation). No usa ni actualiza el estado incremental, la caché ni el índice por
+     * fecha, y no escribe los reportes mensuales, que necesitan los totales en memoria.
+     */
+    private static void processSalesExternal(Options opts, Dimensions dims, int sellerCount, int productCount,
+                                             Path salesFile, RunMetrics metrics) throws IOException {
+        ExternalAggregation.Result r;
+        SalesRejects rejects = new SalesRejects(opts.maxErrors);
+        try {
+            rejects.log(OUTPUT_DIR.resolve(REJECTS_FILE), 0, SalesRejects.FIRST_LINE);
+            r = ExternalAggregation.run(salesFile, dims, opts.memoryLimit, opts.top, OUTPUT_DIR.resolve("report_sales_by_seller.csv"),
+                    OUTPUT_DIR.resolve("report_products_by_quantity.csv"), OUTPUT_DIR, rejects, metrics);
+        } finally {
+            rejects.close();
+        }
+        String reading = "externa (" + r.shards + (r.shards == 1 ? " partición" : " particiones")
+                + (r.resplit > 0 ? ", " + r.resplit + " repartidas" : "") + ", límite de memoria "
+                + (opts.memoryLimit >> 20) + " MB)";
+        metrics.reading = reading;
+        metrics.salesRows = r.lines;
+        metrics.salesRejected = rejects.total();
+        metrics.salesBytes = Files.size(salesFile);
+        RunMetrics.Stage st = metrics.begin("write_summary");
+        try (BufferedWriter bw = openSummary(sellerCount, productCount, r.lines, reading, rejects)) {
+            if (opts.top > 0) bw.write("Reportes por vendedor y producto: solo los " + opts.top + " primeros\n");
+            bw.write("Reportes mensuales, estado incremental e índice por fecha: no se generan en este modo\n\n");
+            bw.write("Reportes generados en: " + OUTPUT_DIR.toAbsolutePath() + "\n");
+        }
+        st.end();
+    }
+
+    /**
+     * Con varios archivos de ventas (SalesFiles): lectura del conjunto, cada archivo descomprimido
+     * por un solo hilo y los agregados de cada hilo combinados en orden. No usa ni actualiza el
+     * estado incremental, la caché ni el índice por fecha. En modo servicio, si el conjunto de la
+     * pasada anterior sigue igual al principio del actual, solo se leen los archivos nuevos; ante
+     * cualquier otro cambio (un archivo modificado, borrado o que va antes por nombre) se lee todo.
+     */
+    private static void processSalesFiles(Options opts, Dimensions dims, List<Path> files, RunMetrics metrics,
+                                          Warm warm) throws IOException {
+        if (opts.hasRange() || opts.index || opts.cache || opts.memoryLimit > 0) {
+            throw new IllegalArgumentException("--from/--to, --index, --cache y --memory-limit necesitan un único sales.csv; hay "
+                    + files.size() + " archivos " + SalesFiles.GLOB);
+        }
+        // La huella se toma antes de leer: un archivo que cambie durante la lectura se relee en la próxima pasada
+        SalesFiles.Fingerprint fingerprint = SalesFiles.Fingerprint.of(files);
+        boolean fromWarm = warm != null && !opts.full && warm.files != null && warm.files.prefixOf(fingerprint);
+        if (warm != null) warm.sales = null;
+        List<Path> pending = fromWarm ? files.subList(warm.files.count(), files.size()) : files;
+        SalesAggregates agg = fromWarm ? warm.filesAgg : dims.newAggregates(opts.topCounters(), opts.distinctPrecision());
+        long bytes = SalesFiles.size(pending);
+        long salesCount = fromWarm ? warm.filesLines : 0;
+        SalesRejects rejects = new SalesRejects(opts.maxErrors);
+        if (fromWarm) rejects.restore(warm.filesRejects);
+        try {
+            rejects.log(OUTPUT_DIR.resolve(REJECTS_FILE), fromWarm ? warm.filesRejectsBytes : 0, SalesRejects.FIRST_LINE);
+            RunMetrics.Stage st = metrics.begin("parse_sales");
+            long parsed = 0;
+            if (!pending.isEmpty()) {
+                // Los archivos nuevos se suman aparte: si la lectura falla, los agregados de la pasada anterior quedan intactos
+                SalesAggregates[] parts = parts(fromWarm ? agg.emptyCopy() : agg, Math.min(opts.threads, pending.size()));
+                parsed = SalesFiles.read(pending, parts, rejects);
+                merge(parts);
+                if (fromWarm) agg.mergeFrom(parts[0]);
             }
+            st.end(parsed, bytes);
+            salesCount += parsed;
+            if (warm != null) {
+                warm.files = fingerprint;
+                warm.filesAgg = agg;
+                warm.filesLines = salesCount;
+                warm.filesRejects = rejects.counts();
+                warm.filesRejectsBytes = rejects.sync();
+            }
+        } finally {
+            rejects.close();
+        }
+        metrics.salesBytes = bytes;
+        RunMetrics.Stage st = metrics.begin("aggregate_finish");
+        agg.finish();
+        st.end(agg.rows(), 0);
+        String reading = fromWarm
+                ? "incremental en memoria (" + pending.size() + " de " + files.size() + " archivos " + SalesFiles.GLOB + ")"
+                : "completa (" + files.size() + " archivos " + SalesFiles.GLOB + ")";
+        writeReports(opts, dims, agg, salesCount, reading, rejects, metrics);
+    }
 
-            Path r3 = OUTPUT_DIR.resolve("resumen.txt");
-            try (BufferedWriter bw = Files.newBufferedWriter(r3, StandardCharsets.UTF_8)) {
-                bw.write("RESUMEN DE PROCESAMIENTO\n");
-                bw.write("------------------------\n");
-                bw.write("Fecha de ejecución: " + LocalDate.now() + "\n\n");
-                bw.write("Registros leídos:\n");
-                bw.write("  - Sellers: " + sellers.size() + "\n");
-                bw.write("  - Products: " + products.size() + "\n");
-                bw.write("  - Sales: " + sales.size() + "\n\n");
-                bw.write("Reportes generados en: " + OUTPUT_DIR.toAbsolutePath() + "\n");
+    /** Abre resumen.txt con la cabecera, los registros leídos y los descartados; el llamador agrega el resto. */
+    private static BufferedWriter openSummary(int sellerCount, int productCount, long salesCount, String reading,
+                                              SalesRejects rejects) throws IOException {
+        BufferedWriter bw = Files.newBufferedWriter(OUTPUT_DIR.resolve("resumen.txt"), StandardCharsets.UTF_8);
+        bw.write("RESUMEN DE PROCESAMIENTO\n");
+        bw.write("------------------------\n");
+        bw.write("Fecha de ejecución: " + LocalDate.now() + "\n\n");
+        bw.write("Registros leídos:\n");
+        bw.write("  - Sellers: " + sellerCount + "\n");
+        bw.write("  - Products: " + productCount + "\n");
+        bw.write("  - Sales: " + salesCount + "\n\n");
+        bw.write("Lectura de ventas: " + reading + "\n\n");
+        if (rejects.total() > 0) {
+            bw.write("Filas descartadas: " + rejects.total() + " (detalle en " + REJECTS_FILE + ")\n");
+            for (SalesRejects.Reason r : SalesRejects.Reason.values()) {
+                if (rejects.count(r) > 0) bw.write("  - " + r.description + ": " + rejects.count(r) + "\n");
             }
+            bw.write("\n");
+        }
+        return bw;
+    }
 
-            System.out.println("OK: Reportes generados en " + OUTPUT_DIR.toAbsolutePath());
-        } catch (Exception e) {
-            System.err.println("ERROR: No fue posible generar los reportes. " + e.getMessage());
-            e.printStackTrace();
+    /* ==================== OPCIONES ==================== */
+
+    /**
+     * Opciones de línea de comandos. Todas son opcionales: sin argumentos el programa
+     * se comporta como siempre.
+     *  --threads N|auto  lee sales.csv en paralelo con N hilos (auto = núcleos disponibles)
+     *  --full            ignora el estado guardado y vuelve a leer sales.csv completo
+     *  --cache           convierte sales.csv a la caché columnar (si falta o cambió el CSV);
+     *                    cuando la caché existe y está al día se usa siempre, aun sin esta opción
+     *  --from AAAA-MM-DD / --to AAAA-MM-DD
+     *                    totales por vendedor y producto solo de ese rango (inclusivo), tomados
+     *                    del índice por fecha. Si el índice está al día solo se escriben esos dos
+     *                    reportes: los completos, los mensuales y resumen.txt quedan como los dejó
+     *                    la última lectura de las ventas (con sus opciones). Si hay que leer las
+     *                    ventas, o con --full, se escriben además todos los demás
+     *  --index           escribe el índice por fecha (sales_by_day.idx) aunque no se consulte un
+     *                    rango, así las próximas consultas no leen las ventas; sin esta opción
+     *                    solo se escribe con --from/--to
+     *  --top N           los reportes por vendedor y producto solo con los N primeros
+     *  --top-error E     modo aproximado: si la matriz vendedor×producto no cabe en memoria densa,
+     *                    el top de cada vendedor y producto se aproxima con Space-Saving de
+     *                    ceil(1/E) contadores (0 < E < 1; error de a lo sumo E × unidades de la
+     *                    entidad) y distinct_* con HyperLogLog
+     *  --distinct-precision P
+     *                    modo aproximado con HyperLogLog de 2^P registros para distinct_*
+     *                    (4 <= P <= 18; error estándar 1,04 / sqrt(2^P))
+     *  --memory-limit T  agregación externa por particiones en disco con unos T bytes de memoria
+     *                    (sufijos k, m, g; mínimo 1m): solo reportes por vendedor y producto
+     *  --watch           modo servicio: se queda escuchando data/input y regenera los reportes
+     *                    cuando cambian los archivos de entrada (ver SalesDaemon); con sales.csv
+     *                    suma solo los bytes agregados y con sales-*.csv solo los archivos nuevos
+     *  --debounce MS     con --watch, ms sin cambios nuevos antes de regenerar (por defecto 200)
+     *  --max-errors N    filas mal formadas (columnas faltantes, cantidad no entera) que se admiten
+     *                    antes de abortar; se listan en rejects.csv (por defecto 1000, 0 = ninguna)
+     * En modo aproximado, lo que no se indica toma DEFAULT_TOP_ERROR y DEFAULT_DISTINCT_PRECISION.
+     */
+    static final class Options {
+        static final double DEFAULT_TOP_ERROR = 0.001;
+        static final int DEFAULT_DISTINCT_PRECISION = 14;
+        static final long DEFAULT_DEBOUNCE_MS = 200;
+        static final long DEFAULT_MAX_ERRORS = 1000;
+
+        int threads = 1;
+        boolean full;
+        boolean cache;
+        boolean index;
+        LocalDate from;
+        LocalDate to;
+        int top;
+        double topError;
+        int distinctPrecision;
+        long memoryLimit;
+        boolean watch;
+        long debounceMs = DEFAULT_DEBOUNCE_MS;
+        long maxErrors = DEFAULT_MAX_ERRORS;
+
+        static Options parse(String[] args) {
+            Options o = new Options();
+            for (int i = 0; i < args.length; i++) {
+                String a = args[i];
+                switch (a) {
+                    case "--threads": {
+                        String v = value(args, ++i, a);
+                        o.threads = v.equals("auto") ? Runtime.getRuntime().availableProcessors() : Integer.parseInt(v);
+                        if (o.threads < 1) throw new IllegalArgumentException("--threads debe ser >= 1");
+                        break;
+                    }
+                    case "--full":
+                        o.full = true;
+                        break;
+                    case "--cache":
+                        o.cache = true;
+                        break;
+                    case "--index":
+                        o.index = true;
+                        break;
+                    case "--from":
+                        o.from = LocalDate.parse(value(args, ++i, a));
+                        break;
+                    case "--to":
+                        o.to = LocalDate.parse(value(args, ++i, a));
+                        break;
+                    case "--top":
+                        o.top = Integer.parseInt(value(args, ++i, a));
+                        if (o.top < 1) throw new IllegalArgumentException("--top debe ser >= 1");
+                        break;
+                    case "--top-error":
+                        o.topError = Double.parseDouble(value(args, ++i, a));
+                        if (!(o.topError > 0 && o.topError < 1)) throw new IllegalArgumentException("--top-error debe estar entre 0 y 1");
+                        break;
+                    case "--distinct-precision":
+                        o.distinctPrecision = Integer.parseInt(value(args, ++i, a));
+                        if (o.distinctPrecision < HyperLogLog.MIN_PRECISION || o.distinctPrecision > HyperLogLog.MAX_PRECISION) {
+                            throw new IllegalArgumentException("--distinct-precision debe estar entre " + HyperLogLog.MIN_PRECISION
+                                    + " y " + HyperLogLog.MAX_PRECISION);
+                        }
+                        break;
+                    case "--memory-limit":
+                        o.memoryLimit = parseSize(value(args, ++i, a));
+                        if (o.memoryLimit < 1 << 20) throw new IllegalArgumentException("--memory-limit debe ser de al menos 1m");
+                        break;
+                    case "--watch":
+                        o.watch = true;
+                        break;
+                    case "--debounce":
+                        o.debounceMs = Long.parseLong(value(args, ++i, a));
+                        if (o.debounceMs < 0) throw new IllegalArgumentException("--debounce debe ser >= 0");
+                        break;
+                    case "--max-errors":
+                        o.maxErrors = Long.parseLong(value(args, ++i, a));
+                        if (o.maxErrors < 0) throw new IllegalArgumentException("--max-errors debe ser >= 0");
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Opción desconocida: " + a);
+                }
+            }
+            if (o.from != null && o.to != null && o.to.isBefore(o.from)) {
+                throw new IllegalArgumentException("--to (" + o.to + ") es anterior a --from (" + o.from + ")");
+            }
+            if (o.memoryLimit > 0 && (o.hasRange() || o.index || o.approximate() || o.cache)) {
+                throw new IllegalArgumentException("--memory-limit no se puede combinar con --from/--to, --index, --cache ni el modo aproximado");
+            }
+            return o;
+        }
+
+        /** Tamaño en bytes con sufijo opcional k, m o g (potencias de 1024). */
+        private static long parseSize(String v) {
+            String t = v.trim().toLowerCase(Locale.ROOT);
+            int shift = t.endsWith("k") ? 10 : t.endsWith("m") ? 20 : t.endsWith("g") ? 30 : 0;
+            if (shift > 0) t = t.substring(0, t.length() - 1);
+            return Long.parseLong(t) << shift;
+        }
+
+        boolean hasRange() { return from != null || to != null; }
+
+        boolean approximate() { return topError > 0 || distinctPrecision > 0; }
+
+        /** Contadores Space-Saving por entidad del modo aproximado (0 = top exacto). */
+        int topCounters() {
+            if (!approximate()) return 0;
+            return (int) Math.min(Integer.MAX_VALUE, (long) Math.ceil(1 / (topError > 0 ? topError : DEFAULT_TOP_ERROR)));
+        }
+
+        /** Precisión de HyperLogLog del modo aproximado (0 = distinct_* exacto). */
+        int distinctPrecision() {
+            if (!approximate()) return 0;
+            return distinctPrecision > 0 ? distinctPrecision : DEFAULT_DISTINCT_PRECISION;
+        }
+
+        /** Hilos a usar para un archivo de ventas de {@code size} bytes (sin tramos diminutos). */
+        int threadsFor(long size) {
+            return (int) Math.max(1, Math.min(threads, size / ChunkedSalesReader.MIN_CHUNK));
+        }
+
+        private static String value(String[] args, int i, String name) {
+            if (i >= args.length) throw new IllegalArgumentException("Falta el valor de " + name);
+            return args[i];
         }
     }
 
@@ -138,144 +600,291 @@ public class Main {
         final String id;
         final String name;
         final String category;
-        final double unitPrice;
-        Product(String id, String name, String category, double unitPrice) {
-            this.id = id; this.name = name; this.category = category; this.unitPrice = unitPrice;
+        final long unitCents;     // precio unitario en centavos
+        Product(String id, String name, String category, long unitCents) {
+            this.id = id; this.name = name; this.category = category; this.unitCents = unitCents;
+        }
+    }
+
+    /**
+     * Tablas de dimensiones codificadas: cada id recibe un código denso una sola vez
+     * (si se repite, gana la última fila, como hacía el HashMap por id).
+     */
+    static final class Dimensions {
+        final IdDictionary sellerIds = new IdDictionary();
+        final IdDictionary productIds = new IdDictionary();
+        final String[] sellerNames;
+        final String[] productNames;
+        final long[] unitCents;
+        final int sellerCount;    // filas de sellers.csv y products.csv (con repetidos)
+        final int productCount;
+
+        Dimensions(List<Seller> sellers, List<Product> products) {
+            sellerCount = sellers.size();
+            productCount = products.size();
+            sellerNames = new String[sellers.size()];
+            for (Seller s : sellers) sellerNames[sellerIds.intern(s.id)] = s.name;
+            productNames = new String[products.size()];
+            unitCents = new long[products.size()];
+            for (Product p : products) {
+                int code = productIds.intern(p.id);
+                productNames[code] = p.name;
+                unitCents[code] = p.unitCents;
+            }
+        }
+
+        SalesAggregates newAggregates(int topCounters, int distinctPrecision) {
+            return new SalesAggregates(sellerIds, productIds, unitCents, topCounters, distinctPrecision);
+        }
+    }
+
+    /* ==================== LECTURA DE VENTAS ==================== */
+
+    /**
+     * Destino de las ventas leídas; recibe cada fila en el orden del archivo.
+     * Los campos de {@code row} solo son válidos durante la llamada.
+     */
+    interface SaleSink {
+        /** false si la fila se descarta (producto que no está en products.csv). */
+        boolean accept(CsvTokenizer row, SaleColumns cols, int quantity);
+    }
+
+    /** Posiciones de las columnas de sales.csv según la cabecera detectada. */
+    static final class SaleColumns {
+        final int count;
+        final int id;
+        final int seller;
+        final int product;
+        final int qty;
+        final int date;
+
+        SaleColumns(String[] cols) {
+            this.count   = cols.length;
+            this.id      = indexOf(cols, "sale_id", "venta_id", "idventa", "id");
+            this.seller  = indexOf(cols, "seller_id", "vendedor_id", "idvendedor", "sellerid");
+            this.product = indexOf(cols, "product_id", "producto_id", "idproducto", "productid");
+            this.qty     = indexOf(cols, "quantity", "cantidad", "qty");
+            this.date    = indexOf(cols, "date", "fecha", "fecha_venta");
+        }
+    }
+
+    /* ==================== REPORTES ==================== */
+
+    static final String SELLER_REPORT_HEADER =
+            "seller_id,seller_name,total_units,total_revenue,distinct_products,top_product_id,top_product_units";
+    static final String PRODUCT_REPORT_HEADER =
+            "product_id,product_name,total_units,total_revenue,distinct_sellers,top_seller_id,top_seller_units";
+
+    /**
+     * Reporte por vendedor con los códigos de {@code ranked} (de {@link SalesAggregates#rankedSellers},
+     * por ingresos descendentes). {@code agg.finish()} ya debe haberse llamado.
+     */
+    static void writeSellerReport(Path path, SalesAggregates agg, String[] sellerNames, int[] ranked) throws IOException {
+        try (CsvWriter w = new CsvWriter(path)) {
+            w.write(SELLER_REPORT_HEADER).newLine();
+            for (int s : ranked) {
+                String name = s < agg.sellers.size() ? sellerNames[s] : null;
+                int top = agg.sellerTop(s);
+                writeRankedRow(w, agg.sellerId(s), name == null ? "DESCONOCIDO" : name, agg.sellerUnits(s), agg.sellerRevenue(s),
+                        agg.sellerDistinct(s), top < 0 ? "" : agg.productId(top), agg.sellerTopUnits(s));
+            }
         }
     }
 
-    static final class Sale {
-        final String saleId;
-        final String sellerId;
-        final String productId;
-        final int quantity;
-        final String date; // ISO yyyy-MM-dd
-        Sale(String saleId, String sellerId, String productId, int quantity, String date) {
-            this.saleId = saleId; this.sellerId = sellerId; this.productId = productId; this.quantity = quantity; this.date = date;
+    /** Reporte por producto con los códigos de {@code ranked} (de {@link SalesAggregates#rankedProducts}). */
+    static void writeProductReport(Path path, SalesAggregates agg, String[] productNames, int[] ranked) throws IOException {
+        try (CsvWriter w = new CsvWriter(path)) {
+            w.write(PRODUCT_REPORT_HEADER).newLine();
+            for (int p : ranked) {
+                int top = agg.productTop(p);
+                writeRankedRow(w, agg.productId(p), productNames[p], agg.productUnits(p), agg.productRevenue(p),
+                        agg.productDistinct(p), top < 0 ? "" : agg.sellerId(top), agg.productTopUnits(p));
+            }
         }
     }
 
-    /* ==================== AGREGADOS ==================== */
+    /** Una fila de los reportes por vendedor o producto (también los escribe ExternalAggregation). */
+    static void writeRankedRow(CsvWriter w, String id, String name, int units, long revenueCents, int distinct,
+                               String topId, int topUnits) throws IOException {
+        w.write(id).write(',').writeField(name).write(',').write(units).write(',').writeCents(revenueCents).write(',')
+         .write(distinct).write(',').write(topId).write(',').write(topUnits).newLine();
+    }
 
-    static final class SellerAgg {
-        int units = 0;
-        double revenue = 0.0;
-        Map<String,Integer> productUnits = new HashMap<>();
+    /**
+     * Totales por mes y entidad a partir de los totales diarios (ordenados por día y código).
+     * Dentro de cada mes, las entidades van en orden de código (el de sellers.csv/products.csv).
+     */
+    static void writeMonthlyReport(Path path, String header, SalesAggregates.DailyTotals.Entries e, int codes,
+                                   IntFunction<String> id, IntFunction<String> name) throws IOException {
+        int[] units = new int[codes];
+        long[] revenue = new long[codes];
+        boolean[] seen = new boolean[codes];
+        try (CsvWriter w = new CsvWriter(path)) {
+            w.write(header).newLine();
+            for (int i = 0; i < e.size; ) {
+                LocalDate first = LocalDate.ofEpochDay(e.day[i]);
+                String month = YearMonth.from(first).toString();
+                long monthEnd = first.withDayOfMonth(first.lengthOfMonth()).toEpochDay();
+                for (; i < e.size && e.day[i] <= monthEnd; i++) {
+                    int c = e.code[i];
+                    units[c] += e.units[i];
+                    revenue[c] = Math.addExact(revenue[c], e.revenue[i]);
+                    seen[c] = true;
+                }
+                for (int c = 0; c < codes; c++) {
+                    if (!seen[c]) continue;
+                    String n = name.apply(c);
+                    w.write(month).write(',').write(id.apply(c)).write(',').writeField(n == null ? "DESCONOCIDO" : n).write(',')
+                     .write(units[c]).write(',').writeCents(revenue[c]).newLine();
+                    units[c] = 0;
+                    revenue[c] = 0;
+                    seen[c] = false;
+                }
+            }
+        }
     }
 
-    static final class ProductAgg {
-        int units = 0;
-        double revenue = 0.0;
-        Map<String,Integer> sellersUnits = new HashMap<>();
+    /** Reportes de vendedores (por ingresos) y productos (por unidades) del rango --from/--to. */
+    private static void writeRangeReports(DateIndex index, Options opts, Dimensions dims, RunMetrics metrics) throws IOException {
+        int fromDay = opts.from != null ? (int) opts.from.toEpochDay() : Integer.MIN_VALUE + 1;
+        int toDay = opts.to != null ? (int) opts.to.toEpochDay() : Integer.MAX_VALUE;
+        String[] extras = index.extraSellers();
+        int base = dims.sellerIds.size();
+        RunMetrics.Stage st = metrics.begin("query_index");
+        DateIndex.RangeTotals t = index.query(fromDay, toDay, base + extras.length, dims.productIds.size());
+        st.end(t.days, 0);
+        st = metrics.begin("write_range_reports");
+        String suffix = "_" + (opts.from != null ? opts.from : "inicio") + "_" + (opts.to != null ? opts.to : "fin") + ".csv";
+
+        int[] sellers = SalesAggregates.top(seenCodes(t.sellerSeen), opts.top, (a, b) -> {
+            int c = Long.compare(t.sellerRevenue[b], t.sellerRevenue[a]);
+            return c != 0 ? c : Integer.compare(a, b);
+        });
+        try (CsvWriter w = new CsvWriter(OUTPUT_DIR.resolve("report_sales_by_seller" + suffix))) {
+            w.write("seller_id,seller_name,total_units,total_revenue").newLine();
+            for (int s : sellers) {
+                String id = s < base ? dims.sellerIds.id(s) : extras[s - base];
+                String name = s < base ? dims.sellerNames[s] : "DESCONOCIDO";
+                w.write(id).write(',').writeField(name).write(',').write(t.sellerUnits[s]).write(',')
+                 .writeCents(t.sellerRevenue[s]).newLine();
+            }
+        }
+
+        int[] products = SalesAggregates.top(seenCodes(t.productSeen), opts.top, (a, b) -> {
+            int c = Integer.compare(t.productUnits[b], t.productUnits[a]);
+            return c != 0 ? c : Integer.compare(a, b);
+        });
+        try (CsvWriter w = new CsvWriter(OUTPUT_DIR.resolve("report_products_by_quantity" + suffix))) {
+            w.write("product_id,product_name,total_units,total_revenue").newLine();
+            for (int p : products) {
+                w.write(dims.productIds.id(p)).write(',').writeField(dims.productNames[p]).write(',')
+                 .write(t.productUnits[p]).write(',').writeCents(t.productRevenue[p]).newLine();
+            }
+        }
+        st.end(sellers.length + products.length, 0);
+    }
+
+    /** Códigos marcados, en orden ascendente. */
+    private static int[] seenCodes(boolean[] seen) {
+        int n = 0;
+        for (boolean b : seen) if (b) n++;
+        int[] codes = new int[n];
+        n = 0;
+        for (int c = 0; c < seen.length; c++) if (seen[c]) codes[n++] = c;
+        return codes;
     }
 
     /* ==================== IO CSV ==================== */
 
-    private static List<Seller> readSellers(Path path) throws IOException {
+    static List<Seller> readSellers(Path path) throws IOException {
         List<Seller> out = new ArrayList<>();
-        try (BufferedReader br = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
-            String header = br.readLine();
-            if (header == null) throw new IOException("Archivo vacío: " + path);
-            String[] cols = splitHeader(header);
+        try (CsvTokenizer.LineReader lr = new CsvTokenizer.LineReader(Files.newInputStream(path))) {
+            if (!lr.next()) throw new IOException("Archivo vacío: " + path);
+            String[] cols = splitHeader(lr.lineString());
             int iId   = indexOf(cols, "seller_id", "idvendedor", "vendedor_id", "id", "sellerid");
             int iName = indexOf(cols, "seller_name", "nombre", "vendedor", "seller_name");
-            String line;
-            while ((line = br.readLine()) != null) {
-                String[] a = parseCSV(line, cols.length);
-                out.add(new Seller(a[iId], a[iName]));
+            CsvTokenizer row = new CsvTokenizer();
+            while (lr.next()) {
+                parseCSV(row, lr.buffer(), lr.lineStart(), lr.lineEnd(), cols.length);
+                out.add(new Seller(row.string(iId), row.string(iName)));
             }
         }
         return out;
     }
 
-    private static List<Product> readProducts(Path path) throws IOException {
+    static List<Product> readProducts(Path path) throws IOException {
         List<Product> out = new ArrayList<>();
-        try (BufferedReader br = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
-            String header = br.readLine();
-            if (header == null) throw new IOException("Archivo vacío: " + path);
-            String[] cols = splitHeader(header);
+        try (CsvTokenizer.LineReader lr = new CsvTokenizer.LineReader(Files.newInputStream(path))) {
+            if (!lr.next()) throw new IOException("Archivo vacío: " + path);
+            String[] cols = splitHeader(lr.lineString());
             int iId    = indexOf(cols, "product_id", "producto_id", "idproducto", "id_prod", "id");
             int iName  = indexOf(cols, "product_name", "nombre", "nombre_producto", "producto");
             int iCat   = indexOf(cols, "category", "categoria", "rubro");
             int iPrice = indexOf(cols, "unit_price", "precio", "precio_unitario", "price");
-            String line;
-            while ((line = br.readLine()) != null) {
-                String[] a = parseCSV(line, cols.length);
-                out.add(new Product(a[iId], a[iName], a[iCat], Double.parseDouble(a[iPrice])));
+            CsvTokenizer row = new CsvTokenizer();
+            while (lr.next()) {
+                parseCSV(row, lr.buffer(), lr.lineStart(), lr.lineEnd(), cols.length);
+                out.add(new Product(row.string(iId), row.string(iName), row.string(iCat), row.parseCents(iPrice)));
             }
         }
         return out;
     }
 
-    private static List<Sale> readSales(Path path) throws IOException {
-        List<Sale> out = new ArrayList<>();
-        try (BufferedReader br = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
-            String header = br.readLine();
-            if (header == null) throw new IOException("Archivo vacío: " + path);
-            String[] cols = splitHeader(header);
-            int iId     = indexOf(cols, "sale_id", "venta_id", "idventa", "id");
-            int iSeller = indexOf(cols, "seller_id", "vendedor_id", "idvendedor", "sellerid");
-            int iProd   = indexOf(cols, "product_id", "producto_id", "idproducto", "productid");
-            int iQty    = indexOf(cols, "quantity", "cantidad", "qty");
-            int iDate   = indexOf(cols, "date", "fecha", "fecha_venta");
-            String line;
-            while ((line = br.readLine()) != null) {
-                String[] a = parseCSV(line, cols.length);
-                out.add(new Sale(a[iId], a[iSeller], a[iProd], Integer.parseInt(a[iQty]), a[iDate]));
+    /** Lectura secuencial de las ventas; el primer error de formato la detiene. */
+    static long readSales(Path path, SaleSink sink) throws IOException {
+        long count = 0;
+        try (SalesRejects rejects = new SalesRejects(0);
+             CsvTokenizer.LineReader lr = new CsvTokenizer.LineReader(Files.newInputStream(path))) {
+            if (!lr.next()) throw new IOException("Archivo vacío: " + path);
+            SaleColumns cols = new SaleColumns(splitHeader(lr.lineString()));
+            CsvTokenizer row = new CsvTokenizer();
+            SalesRejects.Range range = rejects.range();
+            while (lr.next()) {
+                ChunkedSalesReader.accept(row, lr, cols, sink, range, count++);
             }
         }
-        return out;
+        return count;
     }
 
-    private static String[] parseCSV(String line, int expectedMin) {
-        // CSV parser con soporte de comillas dobles
-        List<String> cols = new ArrayList<>();
-        StringBuilder sb = new StringBuilder();
-        boolean inQuotes = false;
-        for (int i = 0; i < line.length(); i++) {
-            char c = line.charAt(i);
-            if (inQuotes) {
-                if (c == '\"') {
-                    if (i+1 < line.length() && line.charAt(i+1) == '\"') {
-                        sb.append('\"'); i++;
-                    } else {
-                        inQuotes = false;
-                    }
-                } else {
-                    sb.append(c);
-                }
-            } else {
-                if (c == ',') {
-                    cols.add(sb.toString()); sb.setLength(0);
-                } else if (c == '\"') {
-                    inQuotes = true;
-                } else {
-                    sb.append(c);
-                }
-            }
-        }
-        cols.add(sb.toString());
-        if (cols.size() < expectedMin) {
-            throw new IllegalArgumentException("CSV inválido: columnas=" + cols.size() + " < esperadas " + expectedMin + ". Línea: " + line);
-        }
-        return cols.toArray(new String[0]);
+    /** Suma a {@code agg} las líneas de ventas en [from, to); con varios hilos, un agregado por tramo. */
+    private static long readSalesRange(Path path, long from, long to, SalesAggregates agg, int threads,
+                                       SalesRejects rejects) throws IOException {
+        if (threads == 1) return ChunkedSalesReader.read(path, from, to, new SaleSink[] { agg }, rejects);
+        SalesAggregates[] parts = parts(agg, threads);
+        long count = ChunkedSalesReader.read(path, from, to, parts, rejects);
+        merge(parts);
+        return count;
     }
 
-    private static String csv(String s) {
-        if (s.contains(",") || s.contains("\"")) {
-            return "\"" + s.replace("\"", "\"\"") + "\"";
+    /** Un agregado por hilo: el primero es {@code agg}, el resto se combina en él con {@link #merge}. */
+    private static SalesAggregates[] parts(SalesAggregates agg, int threads) {
+        SalesAggregates[] parts = new SalesAggregates[threads];
+        parts[0] = agg;
+        for (int i = 1; i < threads; i++) parts[i] = agg.emptyCopy();
+        return parts;
+    }
+
+    /** Combina los agregados parciales en el primero, en el orden del archivo. */
+    private static void merge(SalesAggregates[] parts) {
+        for (int i = 1; i < parts.length; i++) parts[0].mergeFrom(parts[i]);
+    }
+
+    /** Tokeniza una línea CSV (con soporte de comillas dobles) validando la cantidad mínima de columnas. */
+    static void parseCSV(CsvTokenizer row, byte[] buf, int from, int to, int expectedMin) {
+        int n = row.tokenize(buf, from, to);
+        if (n < expectedMin) {
+            throw new IllegalArgumentException("CSV inválido: columnas=" + n + " < esperadas " + expectedMin + ". Línea: " + row.line());
         }
-        return s;
     }
 
-    private static String[] splitHeader(String header) {
+    static String[] splitHeader(String header) {
         // split simple por comas; no esperamos comillas en cabecera
         String[] cols = header.split(",", -1);
         for (int i = 0; i < cols.length; i++) cols[i] = cols[i].trim().toLowerCase();
         return cols;
     }
 
-    private static int indexOf(String[] cols, String... options) {
+    static int indexOf(String[] cols, String... options) {
         for (int i = 0; i < cols.length; i++) {
             String c = cols[i];
             for (String opt : options) {
@@ -285,15 +894,6 @@ public class Main {
         throw new IllegalArgumentException("No se encontró columna: " + String.join("/", options));
     }
 
-    private static <K> String topKey(Map<String,Integer> m) {
-        String best = null;
-        int max = -1;
-        for (Map.Entry<String,Integer> e : m.entrySet()) {
-            if (e.getValue() > max) { max = e.getValue(); best = e.getKey(); }
-        }
-        return best;
-    }
-
     private static Path firstExisting(Path dir, String... names) {
         for (String n : names) {
             Path p = dir.resolve(n);
@@ -0,0 +1,243 @@
+package edu.proyecto;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * RunMetrics
+ * ----------
+ * Métricas de una ejecución de Main: tiempo, filas y bytes de cada etapa, memoria y GC.
+ * - Cada etapa se mide con System.nanoTime() al empezar y al terminar; no hay muestreo ni
+ *   hilos extra, así que el costo no depende de la cantidad de ventas.
+ * - El pico de heap es el mayor entre el uso del heap antes de cada GC (avisos de los
+ *   GarbageCollectorMXBean) y el uso al terminar cada etapa; las pausas salen de los mismos avisos.
+ * - Al final se escriben como JSON (run_profile.json, junto a resumen.txt).
+ * - Con una grabación JFR activa (por ejemplo -XX:StartFlightRecording) cada etapa además se
+ *   emite como evento edu.proyecto.Stage; sin grabación no se crean eventos.
+ */
+final class RunMetrics implements AutoCloseable {
+
+    private final long start = System.nanoTime();
+    private final List<Stage> stages = new ArrayList<>();
+    private final Map<String, long[]> gcAtStart = new HashMap<>();   // colector -> {cantidad, ms} al empezar
+    private final Map<String, Long> maxPause = new HashMap<>();     // colector -> pausa más larga (ms)
+    private final List<NotificationEmitter> emitters = new ArrayList<>();
+    private final NotificationListener listener = this::onGc;
+    private final Set<String> heapPools = new HashSet<>();
+    private volatile long peakHeap;
+
+    // Totales de ventas de la ejecución
+    long salesRows;
+    long salesRejected;
+    long salesBytes;
+    String reading = "";
+
+    RunMetrics() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) heapPools.add(pool.getName());
+        }
+        for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            gcAtStart.put(bean.getName(), new long[] { bean.getCollectionCount(), bean.getCollectionTime() });
+            if (bean instanceof NotificationEmitter) {
+                NotificationEmitter e = (NotificationEmitter) bean;
+                e.addNotificationListener(listener, null, null);
+                emitters.add(e);
+            }
+        }
+        sampleHeap();
+    }
+
+    /** Empieza a medir una etapa; se cierra con {@link Stage#end}. */
+    Stage begin(String name) {
+        return new Stage(name);
+    }
+
+    private void onGc(Notification n, Object handback) {
+        if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(n.getType())) return;
+        GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo.from((CompositeData) n.getUserData());
+        long before = 0;
+        for (Map.Entry<String, MemoryUsage> e : info.getGcInfo().getMemoryUsageBeforeGc().entrySet()) {
+            if (heapPools.contains(e.getKey())) before += e.getValue().getUsed();
+        }
+        synchronized (this) {
+            if (before > peakHeap) peakHeap = before;
+            maxPause.merge(info.getGcName(), info.getGcInfo().getDuration(), Math::max);
+        }
+    }
+
+    private void sampleHeap() {
+        long used = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+        synchronized (this) {
+            if (used > peakHeap) peakHeap = used;
+        }
+    }
+
+    /* ==================== ETAPAS ==================== */
+
+    /** Una etapa en curso o terminada. */
+    final class Stage {
+        private final String name;
+        private final long begin = System.nanoTime();
+        private final StageEvent event;
+        private long nanos = -1;
+        private long rows;
+        private long bytes;
+
+        private Stage(String name) {
+            this.name = name;
+            // Crear el primer evento carga JFR (~0,3 s); sin grabación activa no se toca
+            event = FlightRecorder.isInitialized() ? new StageEvent() : null;
+            if (event != null) event.begin();
+        }
+
+        /** Termina la etapa con las filas y bytes que procesó (0 si no aplica). */
+        void end(long rows, long bytes) {
+            nanos = System.nanoTime() - begin;
+            this.rows = rows;
+            this.bytes = bytes;
+            if (event != null && event.shouldCommit()) {
+                event.stage = name;
+                event.rows = rows;
+                event.bytes = bytes;
+                event.commit();
+            }
+            sampleHeap();
+            synchronized (RunMetrics.this) {
+                stages.add(this);
+            }
+        }
+
+        void end() {
+            end(0, 0);
+        }
+    }
+
+    @Name("edu.proyecto.Stage")
+    @Label("Etapa de procesamiento")
+    @Category("Sales Data Generator")
+    @Description("Una etapa de Main: lectura, agregación, orden o escritura de un reporte")
+    static final class StageEvent extends Event {
+        @Label("Etapa")
+        String stage;
+
+        @Label("Filas")
+        long rows;
+
+        @Label("Bytes")
+        long bytes;
+    }
+
+    /* ==================== JSON ==================== */
+
+    /** Deja de escuchar los avisos de GC (también si la ejecución terminó con error). */
+    @Override
+    public void close() {
+        for (NotificationEmitter e : emitters) {
+            try {
+                e.removeNotificationListener(listener);
+            } catch (ListenerNotFoundException ignored) {
+                // ya estaba quitado
+            }
+        }
+        emitters.clear();
+    }
+
+    /** Escribe run_profile.json. */
+    void write(Path file) throws IOException {
+        long total = System.nanoTime() - start;
+        sampleHeap();
+
+        StringBuilder sb = new StringBuilder(1024);
+        sb.append("{\n");
+        sb.append("  \"date\": \"").append(LocalDate.now()).append("\",\n");
+        sb.append("  \"reading\": ").append(quote(reading)).append(",\n");
+        sb.append("  \"total_ms\": ").append(millis(total)).append(",\n");
+        sb.append("  \"sales\": {\"rows\": ").append(salesRows)
+          .append(", \"rows_rejected\": ").append(salesRejected)
+          .append(", \"bytes_read\": ").append(salesBytes).append("},\n");
+
+        sb.append("  \"stages\": [");
+        synchronized (this) {
+            for (int i = 0; i < stages.size(); i++) {
+                Stage s = stages.get(i);
+                sb.append(i == 0 ? "\n" : ",\n");
+                sb.append("    {\"name\": ").append(quote(s.name))
+                  .append(", \"ms\": ").append(millis(s.nanos))
+                  .append(", \"rows\": ").append(s.rows)
+                  .append(", \"bytes\": ").append(s.bytes);
+                if (s.rows > 0 && s.nanos > 0) sb.append(", \"rows_per_sec\": ").append(Math.round(s.rows * 1e9 / s.nanos));
+                if (s.bytes > 0 && s.nanos > 0) sb.append(", \"mb_per_sec\": ").append(fixed(s.bytes * 1e9 / s.nanos / (1 << 20)));
+                sb.append('}');
+            }
+        }
+        sb.append(stages.isEmpty() ? "],\n" : "\n  ],\n");
+
+        sb.append("  \"memory\": {\"peak_heap_bytes\": ").append(peakHeap)
+          .append(", \"max_heap_bytes\": ").append(Runtime.getRuntime().maxMemory()).append("},\n");
+
+        sb.append("  \"gc\": [");
+        boolean first = true;
+        for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            long[] base = gcAtStart.getOrDefault(bean.getName(), new long[2]);
+            long max;
+            synchronized (this) {
+                max = maxPause.getOrDefault(bean.getName(), 0L);
+            }
+            sb.append(first ? "\n" : ",\n");
+            first = false;
+            sb.append("    {\"name\": ").append(quote(bean.getName()))
+              .append(", \"count\": ").append(bean.getCollectionCount() - base[0])
+              .append(", \"total_ms\": ").append(bean.getCollectionTime() - base[1])
+              .append(", \"max_ms\": ").append(max).append('}');
+        }
+        sb.append(first ? "]\n" : "\n  ]\n");
+        sb.append("}\n");
+        Files.write(file, sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String millis(long nanos) {
+        return fixed(nanos / 1e6);
+    }
+
+    private static String fixed(double v) {
+        return String.format(Locale.US, "%.3f", v);
+    }
+
+    private static String quote(String s) {
+        StringBuilder sb = new StringBuilder(s.length() + 2).append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\') sb.append('\\').append(c);
+            else if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+            else sb.append(c);
+        }
+        return sb.append('"').toString();
+    }
+}
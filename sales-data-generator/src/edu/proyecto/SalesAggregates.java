@@ -0,0 +1,1126 @@
+package edu.proyecto;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * SalesAggregates
+ * ---------------
+ * Totales por vendedor y por producto sobre códigos densos de IdDictionary.
+ * - Unidades e ingresos viven en arreglos primitivos indexados por código. Los ingresos son
+ *   centavos en long (precio en centavos × cantidad) sumados con Math.addExact: el resultado
+ *   no depende del orden de las filas ni de cómo se partan entre hilos o ejecuciones, y un
+ *   desbordamiento se informa (ArithmeticException) en lugar de dar un total equivocado.
+ * - La matriz vendedor×producto es densa (filas int[] por vendedor) mientras quepa en
+ *   DENSE_CELLS celdas; si no, se usa un mapa primitivo disperso.
+ * - Los vendedores que no figuran en sellers.csv reciben códigos locales a partir de
+ *   sellers.size(), así el diccionario compartido entre hilos nunca se modifica.
+ * - En modo aproximado (--top-error / --distinct-precision), si la matriz no cabe en la versión
+ *   densa no se guarda: el top de cada vendedor y producto sale de resúmenes Space-Saving
+ *   (SpaceSaving) y la cantidad de distintos de un HyperLogLog por entidad, con memoria acotada
+ *   por entidad. Con datos chicos se sigue usando la matriz exacta.
+ *
+ * - En la misma pasada se acumulan unidades e ingresos por día para cada vendedor y cada
+ *   producto (DailyTotals), base de los reportes mensuales y del índice por fecha.
+ *
+ * Empates: el reporte original recorría HashMap<String,...> y en caso de empate ganaba
+ * el orden de iteración del mapa. Para reproducirlo byte a byte se guarda el orden de
+ * primera aparición de cada entidad y de cada celda, y al generar el reporte se vuelve a
+ * poblar un HashMap con esas claves en el mismo orden (solo para las entidades empatadas).
+ */
+final class SalesAggregates implements Main.SaleSink {
+
+    /** Máximo de celdas para usar la matriz densa vendedor×producto. */
+    static final long DENSE_CELLS = 1L << 22;
+
+    final IdDictionary sellers;
+    final IdDictionary products;
+    private final long[] unitCents;
+    private final IdDictionary extraSellers = new IdDictionary();
+    private final CrossTable cross;             // null si se usan los resúmenes Space-Saving
+    private final int topCounters;
+    private final int distinctPrecision;
+    private final SpaceSaving sellerProducts;   // por vendedor, los productos más vendidos
+    private final SpaceSaving productSellers;   // por producto, los vendedores que más vendieron
+    private HyperLogLog[] sellerDistinctHll;    // por vendedor, productos distintos
+    private final HyperLogLog[] productDistinctHll;
+    private long[] extraSellerHash = new long[0];   // hash del id de los vendedores locales (0 = sin calcular)
+    private final DailyTotals sellerDays;
+    private final DailyTotals productDays;
+
+    private int[] sellerUnits;
+    private long[] sellerRevenue;
+    private int[] sellerRank;
+    private int[] sellerOrder;
+    private int sellerCount;
+
+    private final int[] productUnits;
+    private final long[] productRevenue;
+    private final int[] productRank;
+    private final int[] productOrder;
+    private int productCount;
+
+    // true si el último acceso al mapa interno de la entidad fue una inserción (ver hashMapOrder)
+    private boolean[] sellerEndsOnInsert;
+    private final boolean[] productEndsOnInsert;
+    private boolean sellersEndOnInsert;
+    private boolean productsEndOnInsert;
+    private long rows;
+
+    // Calculados por finish()
+    private int[] sellerDistinct, sellerTop, sellerTopUnits;
+    private int[] productDistinct, productTop, productTopUnits;
+
+    /**
+     * {@code topCounters}: contadores Space-Saving por entidad para el top de cada vendedor y
+     * producto; {@code distinctPrecision}: precisión de los HyperLogLog de distintos. Ambos 0 =
+     * siempre exacto; si no, ambos > 0, y solo se usan si la matriz exacta no sería densa.
+     * {@code unitCents}: precio de cada producto en centavos.
+     */
+    SalesAggregates(IdDictionary sellers, IdDictionary products, long[] unitCents, int topCounters, int distinctPrecision) {
+        this.sellers = sellers;
+        this.products = products;
+        this.unitCents = unitCents;
+        int ns = Math.max(sellers.size(), 16);
+        int np = products.size();
+        sellerUnits = new int[ns];
+        sellerRevenue = new long[ns];
+        sellerRank = new int[ns];
+        Arrays.fill(sellerRank, -1);
+        sellerOrder = new int[ns];
+        sellerEndsOnInsert = new boolean[ns];
+        productUnits = new int[np];
+        productRevenue = new long[np];
+        productRank = new int[np];
+        Arrays.fill(productRank, -1);
+        productOrder = new int[np];
+        productEndsOnInsert = new boolean[np];
+        boolean dense = (long) ns * np <= DENSE_CELLS;
+        this.topCounters = dense ? 0 : topCounters;
+        this.distinctPrecision = dense ? 0 : distinctPrecision;
+        cross = dense ? new DenseCross(np) : this.topCounters == 0 ? new SparseCross() : null;
+        sellerProducts = cross == null ? new SpaceSaving(topCounters) : null;
+        productSellers = cross == null ? new SpaceSaving(topCounters) : null;
+        sellerDistinctHll = cross == null ? new HyperLogLog[ns] : null;
+        productDistinctHll = cross == null ? new HyperLogLog[np] : null;
+        sellerDays = new DailyTotals(sellers.size());
+        productDays = new DailyTotals(np);
+    }
+
+    @Override
+    public boolean accept(CsvTokenizer row, Main.SaleColumns cols, int quantity) {
+        int p = products.find(row, cols.product);
+        if (p < 0) return false;
+        int s = sellers.find(row, cols.seller);
+        if (s < 0) s = sellers.size() + extraSellers.intern(row, cols.seller);
+        add(s, p, quantity, row.parseEpochDay(cols.date));
+        return true;
+    }
+
+    /** Código del vendedor; los que no están en sellers.csv reciben un código local (como en accept). */
+    int sellerCode(String id) {
+        int s = sellers.find(id);
+        return s >= 0 ? s : sellers.size() + extraSellers.intern(id);
+    }
+
+    /** Acumula una venta ya codificada, sin fecha. */
+    void add(int s, int p, int units) {
+        add(s, p, units, CsvTokenizer.NO_DATE);
+    }
+
+    /** Acumula una venta ya codificada: vendedor {@code s}, producto {@code p}, día {@code day} (epoch-day o NO_DATE). */
+    void add(int s, int p, int units, int day) {
+        long revenue = Math.multiplyExact(unitCents[p], units);
+        rows++;
+        if (day != CsvTokenizer.NO_DATE) {
+            sellerDays.add(day, s, units, revenue);
+            productDays.add(day, p, units, revenue);
+        }
+        if (s >= sellerRank.length) growSellers(s + 1);
+        sellersEndOnInsert = sellerRank[s] < 0;
+        if (sellersEndOnInsert) {
+            sellerRank[s] = sellerCount;
+            sellerOrder[sellerCount++] = s;
+        }
+        sellerUnits[s] += units;
+        sellerRevenue[s] = Math.addExact(sellerRevenue[s], revenue);
+
+        productsEndOnInsert = productRank[p] < 0;
+        if (productsEndOnInsert) {
+            productRank[p] = productCount;
+            productOrder[productCount++] = p;
+        }
+        productUnits[p] += units;
+        productRevenue[p] = Math.addExact(productRevenue[p], revenue);
+
+        if (cross == null) {
+            sellerProducts.add(s, p, units);
+            productSellers.add(p, s, units);
+            sellerHll(s).add(HyperLogLog.hash(p));
+            productHll(p).add(sellerHash(s));
+            return;
+        }
+        boolean newCell = cross.add(s, p, units);
+        sellerEndsOnInsert[s] = newCell;
+        productEndsOnInsert[p] = newCell;
+    }
+
+    /** Agregado vacío con las mismas dimensiones y el mismo modo de top (uno por hilo). */
+    SalesAggregates emptyCopy() {
+        return new SalesAggregates(sellers, products, unitCents, topCounters, distinctPrecision);
+    }
+
+    private HyperLogLog sellerHll(int s) {
+        if (s >= sellerDistinctHll.length) sellerDistinctHll = Arrays.copyOf(sellerDistinctHll, Math.max(s + 1, sellerDistinctHll.length * 2));
+        HyperLogLog h = sellerDistinctHll[s];
+        return h != null ? h : (sellerDistinctHll[s] = new HyperLogLog(distinctPrecision));
+    }
+
+    private HyperLogLog productHll(int p) {
+        HyperLogLog h = productDistinctHll[p];
+        return h != null ? h : (productDistinctHll[p] = new HyperLogLog(distinctPrecision));
+    }
+
+    /**
+     * Hash del vendedor para los HyperLogLog. Los códigos locales cambian entre hilos y
+     * ejecuciones, por eso esos vendedores se identifican por el hash de su id.
+     */
+    private long sellerHash(int s) {
+        int base = sellers.size();
+        if (s < base) return HyperLogLog.hash(s);
+        int i = s - base;
+        if (i >= extraSellerHash.length) extraSellerHash = Arrays.copyOf(extraSellerHash, Math.max(i + 1, extraSellerHash.length * 2));
+        if (extraSellerHash[i] == 0) extraSellerHash[i] = HyperLogLog.hash(sellerId(s));
+        return extraSellerHash[i];
+    }
+
+    private void growSellers(int min) {
+        int len = Math.max(min, sellerRank.length * 2);
+        int old = sellerRank.length;
+        sellerUnits = Arrays.copyOf(sellerUnits, len);
+        sellerRevenue = Arrays.copyOf(sellerRevenue, len);
+        sellerRank = Arrays.copyOf(sellerRank, len);
+        Arrays.fill(sellerRank, old, len, -1);
+        sellerOrder = Arrays.copyOf(sellerOrder, len);
+        sellerEndsOnInsert = Arrays.copyOf(sellerEndsOnInsert, len);
+    }
+
+    /**
+     * Suma en este agregado los totales de otro que cubre filas posteriores del archivo
+     * (por ejemplo, el tramo siguiente en la lectura paralela).
+     */
+    void mergeFrom(SalesAggregates other) {
+        int base = sellers.size();
+        int[] remap = new int[other.sellerRank.length];
+        boolean lastIsNew = false;
+        for (int i = 0; i < other.sellerCount; i++) {
+            int s = other.sellerOrder[i];
+            int t = s < base ? s : base + extraSellers.intern(other.extraSellers.id(s - base));
+            remap[s] = t;
+            if (t >= sellerRank.length) growSellers(t + 1);
+            lastIsNew = sellerRank[t] < 0;
+            if (lastIsNew) {
+                sellerRank[t] = sellerCount;
+                sellerOrder[sellerCount++] = t;
+            }
+            sellerUnits[t] += other.sellerUnits[s];
+            sellerRevenue[t] = Math.addExact(sellerRevenue[t], other.sellerRevenue[s]);
+            sellerEndsOnInsert[t] = other.sellerEndsOnInsert[s];
+        }
+        // El último acceso de la otra parte es posterior a todos los de esta; si fue una
+        // inserción allí, fue la de su última clave nueva, que aquí solo es nueva si no existía
+        if (other.rows > 0) sellersEndOnInsert = other.sellersEndOnInsert && lastIsNew;
+        lastIsNew = false;
+        for (int i = 0; i < other.productCount; i++) {
+            int p = other.productOrder[i];
+            lastIsNew = productRank[p] < 0;
+            if (lastIsNew) {
+                productRank[p] = productCount;
+                productOrder[productCount++] = p;
+            }
+            productUnits[p] += other.productUnits[p];
+            productRevenue[p] = Math.addExact(productRevenue[p], other.productRevenue[p]);
+            productEndsOnInsert[p] = other.productEndsOnInsert[p];
+        }
+        if (other.rows > 0) productsEndOnInsert = other.productsEndOnInsert && lastIsNew;
+        rows += other.rows;
+        sellerDays.mergeFrom(other.sellerDays, remap);
+        productDays.mergeFrom(other.productDays, null);
+        if (cross == null) {
+            sellerProducts.mergeFrom(other.sellerProducts, remap, null);
+            productSellers.mergeFrom(other.productSellers, null, remap);
+            for (int s = 0; s < other.sellerDistinctHll.length; s++) {
+                if (other.sellerDistinctHll[s] != null) sellerHll(remap[s]).mergeFrom(other.sellerDistinctHll[s]);
+            }
+            for (int p = 0; p < productDistinctHll.length; p++) {
+                if (other.productDistinctHll[p] != null) productHll(p).mergeFrom(other.productDistinctHll[p]);
+            }
+            return;
+        }
+        int cellBase = cross.cells();
+        other.cross.forEach((s, p, units, seq) -> cross.merge(remap[s], p, units, cellBase + seq));
+    }
+
+    /* ==================== PERSISTENCIA ==================== */
+
+    /**
+     * Escribe el estado acumulado (no los resultados de finish()) para poder seguir sumando
+     * filas en otra ejecución. Los códigos dependen de las dimensiones: quien restaura debe
+     * usar los mismos sellers.csv y products.csv.
+     */
+    void writeTo(DataOutput out) throws IOException {
+        out.writeInt(sellers.size());
+        out.writeInt(products.size());
+        out.writeInt(topCounters);
+        out.writeInt(distinctPrecision);
+        out.writeLong(rows);
+        out.writeBoolean(sellersEndOnInsert);
+        out.writeBoolean(productsEndOnInsert);
+        out.writeInt(extraSellers.size());
+        for (int i = 0; i < extraSellers.size(); i++) out.writeUTF(extraSellers.id(i));
+        out.writeInt(sellerCount);
+        for (int i = 0; i < sellerCount; i++) {
+            int s = sellerOrder[i];
+            out.writeInt(s);
+            out.writeInt(sellerUnits[s]);
+            out.writeLong(sellerRevenue[s]);
+            out.writeBoolean(sellerEndsOnInsert[s]);
+        }
+        out.writeInt(productCount);
+        for (int i = 0; i < productCount; i++) {
+            int p = productOrder[i];
+            out.writeInt(p);
+            out.writeInt(productUnits[p]);
+            out.writeLong(productRevenue[p]);
+            out.writeBoolean(productEndsOnInsert[p]);
+        }
+        if (cross == null) {
+            sellerProducts.writeTo(out);
+            productSellers.writeTo(out);
+            writeSketches(out, sellerDistinctHll);
+            writeSketches(out, productDistinctHll);
+        } else {
+            writeCells(out);
+        }
+        sellerDays.writeTo(out);
+        productDays.writeTo(out);
+    }
+
+    private static void writeSketches(DataOutput out, HyperLogLog[] sketches) throws IOException {
+        int n = 0;
+        for (HyperLogLog h : sketches) if (h != null) n++;
+        out.writeInt(n);
+        for (int e = 0; e < sketches.length; e++) {
+            if (sketches[e] == null) continue;
+            out.writeInt(e);
+            sketches[e].writeTo(out);
+        }
+    }
+
+    private void writeCells(DataOutput out) throws IOException {
+        // El visitante no puede lanzar IOException: primero se copian las celdas
+        int n = cross.cells();
+        int[] cellSeller = new int[n];
+        int[] cellProduct = new int[n];
+        int[] cellUnits = new int[n];
+        int[] cellSeq = new int[n];
+        int[] count = new int[1];
+        cross.forEach((s, p, units, seq) -> {
+            int i = count[0]++;
+            cellSeller[i] = s;
+            cellProduct[i] = p;
+            cellUnits[i] = units;
+            cellSeq[i] = seq;
+        });
+        out.writeInt(count[0]);
+        for (int i = 0; i < count[0]; i++) {
+            out.writeInt(cellSeller[i]);
+            out.writeInt(cellProduct[i]);
+            out.writeInt(cellUnits[i]);
+            out.writeInt(cellSeq[i]);
+        }
+    }
+
+    /**
+     * Restaura un estado escrito con {@link #writeTo} sobre las mismas dimensiones y con el
+     * mismo modo ({@code topCounters} y {@code distinctPrecision}).
+     */
+    static SalesAggregates readFrom(DataInput in, IdDictionary sellers, IdDictionary products, long[] unitCents,
+                                    int topCounters, int distinctPrecision) throws IOException {
+        if (in.readInt() != sellers.size() || in.readInt() != products.size()) {
+            throw new IOException("El estado guardado no corresponde a las dimensiones actuales");
+        }
+        SalesAggregates a = new SalesAggregates(sellers, products, unitCents, topCounters, distinctPrecision);
+        if (in.readInt() != a.topCounters || in.readInt() != a.distinctPrecision) {
+            throw new IOException("El estado guardado usa otro modo aproximado (--top-error / --distinct-precision)");
+        }
+        a.rows = in.readLong();
+        a.sellersEndOnInsert = in.readBoolean();
+        a.productsEndOnInsert = in.readBoolean();
+        int extra = in.readInt();
+        for (int i = 0; i < extra; i++) a.extraSellers.intern(in.readUTF());
+        int ns = in.readInt();
+        for (int i = 0; i < ns; i++) {
+            int s = in.readInt();
+            if (s >= a.sellerRank.length) a.growSellers(s + 1);
+            a.sellerRank[s] = i;
+            a.sellerOrder[i] = s;
+            a.sellerUnits[s] = in.readInt();
+            a.sellerRevenue[s] = in.readLong();
+            a.sellerEndsOnInsert[s] = in.readBoolean();
+        }
+        a.sellerCount = ns;
+        int np = in.readInt();
+        for (int i = 0; i < np; i++) {
+            int p = in.readInt();
+            a.productRank[p] = i;
+            a.productOrder[i] = p;
+            a.productUnits[p] = in.readInt();
+            a.productRevenue[p] = in.readLong();
+            a.productEndsOnInsert[p] = in.readBoolean();
+        }
+        a.productCount = np;
+        if (a.cross == null) {
+            a.sellerProducts.readFrom(in);
+            a.productSellers.readFrom(in);
+            for (int i = 0, n = in.readInt(); i < n; i++) {
+                int s = in.readInt();
+                a.sellerHll(s).mergeFrom(HyperLogLog.readFrom(in, a.distinctPrecision));
+            }
+            for (int i = 0, n = in.readInt(); i < n; i++) {
+                int p = in.readInt();
+                a.productDistinctHll[p] = HyperLogLog.readFrom(in, a.distinctPrecision);
+            }
+        } else {
+            int cells = in.readInt();
+            for (int i = 0; i < cells; i++) {
+                a.cross.merge(in.readInt(), in.readInt(), in.readInt(), in.readInt());
+            }
+        }
+        a.sellerDays.readFrom(in);
+        a.productDays.readFrom(in);
+        return a;
+    }
+
+    /* ==================== RESULTADOS ==================== */
+
+    String sellerId(int s) {
+        int base = sellers.size();
+        return s < base ? sellers.id(s) : extraSellers.id(s - base);
+    }
+
+    String productId(int p) { return products.id(p); }
+
+    int sellerUnits(int s) { return sellerUnits[s]; }
+
+    /** Ingresos del vendedor en centavos. */
+    long sellerRevenue(int s) { return sellerRevenue[s]; }
+
+    int productUnits(int p) { return productUnits[p]; }
+
+    /** Ingresos del producto en centavos. */
+    long productRevenue(int p) { return productRevenue[p]; }
+
+    int sellerDistinct(int s) { return sellerDistinct[s]; }
+
+    /** Producto más vendido por el vendedor o -1 si no hay. */
+    int sellerTop(int s) { return sellerTop[s]; }
+
+    int sellerTopUnits(int s) { return sellerTopUnits[s]; }
+
+    int productDistinct(int p) { return productDistinct[p]; }
+
+    /** Vendedor que más unidades vendió del producto o -1 si no hay. */
+    int productTop(int p) { return productTop[p]; }
+
+    int productTopUnits(int p) { return productTopUnits[p]; }
+
+    /** Totales por (día, vendedor); los códigos son los de sellerId(). */
+    DailyTotals sellerDays() { return sellerDays; }
+
+    /** Totales por (día, producto). */
+    DailyTotals productDays() { return productDays; }
+
+    /** Ventas acumuladas (las de productos desconocidos no cuentan). */
+    long rows() { return rows; }
+
+    /** Cantidad de códigos de vendedor en uso (los de sellers.csv más los locales). */
+    int sellerCodes() { return sellers.size() + extraSellers.size(); }
+
+    /** Calcula la cantidad de entidades distintas y el top de cada vendedor y producto. */
+    void finish() {
+        int ns = sellerRank.length;
+        int np = productRank.length;
+        sellerDistinct = new int[ns];
+        sellerTop = new int[ns];
+        sellerTopUnits = new int[ns];
+        productDistinct = new int[np];
+        productTop = new int[np];
+        productTopUnits = new int[np];
+        if (cross == null) {
+            finishSketch(sellerProducts, sellerDistinctHll, sellerDistinct, sellerTop, sellerTopUnits);
+            finishSketch(productSellers, productDistinctHll, productDistinct, productTop, productTopUnits);
+            return;
+        }
+        finishSide(true, sellerDistinct, sellerTop, sellerTopUnits, sellerEndsOnInsert);
+        finishSide(false, productDistinct, productTop, productTopUnits, productEndsOnInsert);
+    }
+
+    /** Top aproximado de cada entidad; como en topKey, un máximo negativo no cuenta. */
+    private static void finishSketch(SpaceSaving sketch, HyperLogLog[] hll, int[] distinct, int[] top, int[] topUnits) {
+        for (int e = 0; e < distinct.length; e++) {
+            distinct[e] = e < hll.length && hll[e] != null ? (int) Math.min(Integer.MAX_VALUE, hll[e].estimate()) : 0;
+            long units = sketch.topCount(e);
+            top[e] = units >= 0 ? sketch.top(e) : -1;
+            topUnits[e] = (int) Math.max(units, 0);
+        }
+    }
+
+    /** Contadores Space-Saving por entidad en uso, o 0 si el top por entidad es exacto. */
+    int topCounters() { return topCounters; }
+
+    /** Precisión de los HyperLogLog de distinct_* en uso, o 0 si la cuenta es exacta. */
+    int distinctPrecision() { return distinctPrecision; }
+
+    /** Resúmenes del top por vendedor (null si el top es exacto). */
+    SpaceSaving sellerTopSketch() { return sellerProducts; }
+
+    /** Resúmenes del top por producto (null si el top es exacto). */
+    SpaceSaving productTopSketch() { return productSellers; }
+
+    /**
+     * Igual que el topKey original: solo cuentan valores >= 0 y, entre los máximos, gana el
+     * primero en el orden de iteración del mapa de la entidad.
+     */
+    private void finishSide(boolean bySeller, int[] distinct, int[] top, int[] topUnits, boolean[] endsOnInsert) {
+        int n = distinct.length;
+        int[] ties = new int[n];
+        Arrays.fill(top, -1);
+        Arrays.fill(topUnits, -1);
+        cross.forEach((s, p, units, seq) -> {
+            int e = bySeller ? s : p;
+            distinct[e]++;
+            if (units > topUnits[e]) {
+                topUnits[e] = units;
+                top[e] = bySeller ? p : s;
+                ties[e] = 1;
+            } else if (units == topUnits[e]) {
+                ties[e]++;
+            }
+        });
+        for (int e = 0; e < n; e++) if (topUnits[e] < 0) topUnits[e] = 0;
+
+        // Empates: se juntan las celdas de esas entidades ordenadas por primera aparición
+        int[] offset = new int[n + 1];
+        for (int e = 0; e < n; e++) offset[e + 1] = offset[e] + (ties[e] > 1 ? distinct[e] : 0);
+        int total = offset[n];
+        if (total == 0) return;
+        long[] order = new long[total];
+        int[] other = new int[total];
+        int[] cellUnits = new int[total];
+        int[] fill = Arrays.copyOf(offset, n);
+        cross.forEach((s, p, units, seq) -> {
+            int e = bySeller ? s : p;
+            if (ties[e] < 2) return;
+            int i = fill[e]++;
+            order[i] = ((long) seq << 32) | i;
+            other[i] = bySeller ? p : s;
+            cellUnits[i] = units;
+        });
+        for (int e = 0; e < n; e++) {
+            if (ties[e] < 2) continue;
+            int from = offset[e];
+            int to = offset[e + 1];
+            Arrays.sort(order, from, to);
+            String[] keys = new String[to - from];
+            for (int i = from; i < to; i++) {
+                int o = other[(int) order[i]];
+                keys[i - from] = bySeller ? productId(o) : sellerId(o);
+            }
+            int[] pos = hashMapOrder(keys, endsOnInsert[e], false);
+            int bestPos = Integer.MAX_VALUE;
+            for (int i = from; i < to; i++) {
+                int slot = (int) order[i];
+                if (cellUnits[slot] == topUnits[e] && pos[i - from] < bestPos) {
+                    bestPos = pos[i - from];
+                    top[e] = other[slot];
+                }
+            }
+        }
+    }
+
+    /**
+     * Los {@code limit} vendedores con más ingresos (todos si {@code limit} <= 0), en orden
+     * descendente. El orden del HashMap, que solo desempata, se calcula recién ante un empate.
+     */
+    int[] rankedSellers(int limit) {
+        int[] codes = Arrays.copyOf(sellerOrder, sellerCount);
+        int[][] pos = new int[1][];
+        IntComparator cmp = (a, b) -> {
+            int c = Long.compare(sellerRevenue[b], sellerRevenue[a]);
+            if (c != 0) return c;
+            if (pos[0] == null) pos[0] = hashMapOrder(sellerKeys(), sellersEndOnInsert, true);
+            return Integer.compare(pos[0][sellerRank[a]], pos[0][sellerRank[b]]);
+        };
+        return top(codes, limit, cmp);
+    }
+
+    /** Los {@code limit} productos con más unidades (todos si {@code limit} <= 0), en orden descendente. */
+    int[] rankedProducts(int limit) {
+        int[] codes = Arrays.copyOf(productOrder, productCount);
+        int[][] pos = new int[1][];
+        IntComparator cmp = (a, b) -> {
+            int c = Integer.compare(productUnits[b], productUnits[a]);
+            if (c != 0) return c;
+            if (pos[0] == null) pos[0] = hashMapOrder(productKeys(), productsEndOnInsert, true);
+            return Integer.compare(pos[0][productRank[a]], pos[0][productRank[b]]);
+        };
+        return top(codes, limit, cmp);
+    }
+
+    /** Ids de los vendedores en orden de primera aparición. */
+    private String[] sellerKeys() {
+        String[] keys = new String[sellerCount];
+        for (int i = 0; i < sellerCount; i++) keys[i] = sellerId(sellerOrder[i]);
+        return keys;
+    }
+
+    private String[] productKeys() {
+        String[] keys = new String[productCount];
+        for (int i = 0; i < productCount; i++) keys[i] = productId(productOrder[i]);
+        return keys;
+    }
+
+    /* ==================== ORDEN DE HASHMAP ==================== */
+
+    /**
+     * Posición de cada clave en el recorrido de un HashMap poblado con computeIfAbsent/merge
+     * en el orden dado. Esos métodos agrandan la tabla al inicio de la llamada siguiente, por lo
+     * que importa si hubo algún acceso posterior a la última inserción ({@code !endsOnInsert}).
+     */
+    static int[] hashMapOrder(String[] keys, boolean endsOnInsert, boolean viaCompute) {
+        Map<String, Integer> m = new HashMap<>();
+        for (int i = 0; i < keys.length; i++) {
+            final int index = i;
+            if (viaCompute) m.computeIfAbsent(keys[i], k -> index);
+            else m.merge(keys[i], i, (a, b) -> a);
+        }
+        if (!endsOnInsert && keys.length > 0) {
+            if (viaCompute) m.computeIfAbsent(keys[0], k -> 0);
+            else m.merge(keys[0], 0, (a, b) -> a);
+        }
+        int[] pos = new int[keys.length];
+        int k = 0;
+        for (int i : m.values()) pos[i] = k++;
+        return pos;
+    }
+
+    interface IntComparator {
+        int compare(int a, int b);
+    }
+
+    /**
+     * Los {@code limit} primeros códigos de {@code a} según {@code cmp}, que debe ser un orden
+     * total, ya ordenados; {@code limit} <= 0 = todos. Recorre {@code a} una vez con un montículo
+     * de {@code limit} elementos cuya raíz es el peor de los elegidos, en lugar de ordenar todo.
+     */
+    static int[] top(int[] a, int limit, IntComparator cmp) {
+        if (limit <= 0 || limit >= a.length) {
+            int[] all = a.clone();
+            sort(all, cmp);
+            return all;
+        }
+        int[] heap = new int[limit];
+        int size = 0;
+        for (int x : a) {
+            if (size < limit) {
+                // Subir: el padre debe ir después (ser peor) que sus hijos
+                int h = size++;
+                while (h > 0 && cmp.compare(heap[(h - 1) >>> 1], x) < 0) {
+                    heap[h] = heap[(h - 1) >>> 1];
+                    h = (h - 1) >>> 1;
+                }
+                heap[h] = x;
+            } else if (cmp.compare(x, heap[0]) < 0) {
+                int h = 0;
+                while (true) {
+                    int child = 2 * h + 1;
+                    if (child >= limit) break;
+                    if (child + 1 < limit && cmp.compare(heap[child + 1], heap[child]) > 0) child++;
+                    if (cmp.compare(heap[child], x) <= 0) break;
+                    heap[h] = heap[child];
+                    h = child;
+                }
+                heap[h] = x;
+            }
+        }
+        sort(heap, cmp);
+        return heap;
+    }
+
+    /** Merge sort sobre códigos primitivos (evita Integer[] en el ordenamiento). */
+    static void sort(int[] a, IntComparator cmp) {
+        int[] tmp = new int[a.length];
+        for (int width = 1; width < a.length; width *= 2) {
+            for (int lo = 0; lo < a.length - width; lo += 2 * width) {
+                int mid = lo + width;
+                int hi = Math.min(lo + 2 * width, a.length);
+                int i = lo, j = mid, k = lo;
+                while (i < mid && j < hi) tmp[k++] = cmp.compare(a[j], a[i]) < 0 ? a[j++] : a[i++];
+                while (i < mid) tmp[k++] = a[i++];
+                while (j < hi) tmp[k++] = a[j++];
+                System.arraycopy(tmp, lo, a, lo, hi - lo);
+            }
+        }
+    }
+
+    /* ==================== MATRIZ VENDEDOR×PRODUCTO ==================== */
+
+    interface CellVisitor {
+        void visit(int seller, int product, int units, int seq);
+    }
+
+    /** Unidades por (vendedor, producto) y el orden de creación de cada celda. */
+    interface CrossTable {
+        /** Suma unidades; devuelve true si la celda no existía. */
+        boolean add(int seller, int product, int units);
+        /** Suma unidades de otra tabla; si la celda es nueva toma el orden {@code seq}. */
+        void merge(int seller, int product, int units, int seq);
+        int cells();
+        void forEach(CellVisitor v);
+    }
+
+    /** Una fila int[] de unidades y otra de orden (seq + 1, 0 = vacía) por vendedor, creadas al primer uso. */
+    static final class DenseCross implements CrossTable {
+        private final int products;
+        private int[][] units = new int[16][];
+        private int[][] seqs = new int[16][];
+        private int cells;
+
+        DenseCross(int products) { this.products = products; }
+
+        private int[] row(int s) {
+            if (s >= units.length) {
+                int len = Math.max(s + 1, units.length * 2);
+                units = Arrays.copyOf(units, len);
+                seqs = Arrays.copyOf(seqs, len);
+            }
+            int[] row = units[s];
+            if (row == null) {
+                row = units[s] = new int[products];
+                seqs[s] = new int[products];
+            }
+            return row;
+        }
+
+        @Override
+        public boolean add(int s, int p, int u) {
+            int[] row = row(s);
+            row[p] += u;
+            int[] seq = seqs[s];
+            if (seq[p] != 0) return false;
+            seq[p] = ++cells;
+            return true;
+        }
+
+        @Override
+        public void merge(int s, int p, int u, int order) {
+            int[] row = row(s);
+            row[p] += u;
+            int[] seq = seqs[s];
+            if (seq[p] == 0) {
+                seq[p] = order + 1;
+                cells = Math.max(cells, order + 1);
+            }
+        }
+
+        @Override
+        public int cells() { return cells; }
+
+        @Override
+        public void forEach(CellVisitor v) {
+            for (int s = 0; s < units.length; s++) {
+                int[] seq = seqs[s];
+                if (seq == null) continue;
+                int[] row = units[s];
+                for (int p = 0; p < products; p++) {
+                    if (seq[p] != 0) v.visit(s, p, row[p], seq[p] - 1);
+                }
+            }
+        }
+    }
+
+    /** Mapa primitivo (vendedor<<32 | producto) -> unidades con direccionamiento abierto. */
+    static final class SparseCross implements CrossTable {
+        private static final long EMPTY = -1L;
+        private long[] keys = newKeys(1 << 12);
+        private int[] vals = new int[1 << 12];
+        private int[] seqs = new int[1 << 12];
+        private int size;
+        private int cells;
+
+        private static long[] newKeys(int n) {
+            long[] k = new long[n];
+            Arrays.fill(k, EMPTY);
+            return k;
+        }
+
+        /** Slot de la clave; si no existe la inserta con el orden dado (o el siguiente si es negativo). */
+        private int slot(long key, int order) {
+            int mask = keys.length - 1;
+            int slot = mix(key) & mask;
+            while (true) {
+                long k = keys[slot];
+                if (k == key) return slot;
+                if (k == EMPTY) break;
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            seqs[slot] = order < 0 ? cells++ : order;
+            if (order >= 0) cells = Math.max(cells, order + 1);
+            if (++size * 2 > keys.length) {
+                grow();
+                return slot(key, 0);
+            }
+            return slot;
+        }
+
+        @Override
+        public boolean add(int s, int p, int u) {
+            int before = size;
+            int slot = slot(((long) s << 32) | p, -1);
+            vals[slot] += u;
+            return size != before;
+        }
+
+        @Override
+        public void merge(int s, int p, int u, int order) {
+            int slot = slot(((long) s << 32) | p, order);
+            vals[slot] += u;
+        }
+
+        @Override
+        public int cells() { return cells; }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            int[] oldVals = vals;
+            int[] oldSeqs = seqs;
+            keys = newKeys(oldKeys.length * 2);
+            vals = new int[oldKeys.length * 2];
+            seqs = new int[oldKeys.length * 2];
+            int mask = keys.length - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                long k = oldKeys[i];
+                if (k == EMPTY) continue;
+                int slot = mix(k) & mask;
+                while (keys[slot] != EMPTY) slot = (slot + 1) & mask;
+                keys[slot] = k;
+                vals[slot] = oldVals[i];
+                seqs[slot] = oldSeqs[i];
+            }
+        }
+
+        private static int mix(long key) {
+            key *= 0x9E3779B97F4A7C15L;
+            return (int) (key ^ (key >>> 32));
+        }
+
+        @Override
+        public void forEach(CellVisitor v) {
+            for (int i = 0; i < keys.length; i++) {
+                long k = keys[i];
+                if (k != EMPTY) v.visit((int) (k >>> 32), (int) k, vals[i], seqs[i]);
+            }
+        }
+    }
+
+    /* ==================== TOTALES POR DÍA ==================== */
+
+    /**
+     * Unidades e ingresos por (día, entidad).
+     * - Mientras quepa en DENSE_CELLS celdas, una fila densa por día indexada por código (más un
+     *   bit de presencia por celda, porque una venta puede sumar 0 unidades): una venta es un
+     *   acceso directo y las entradas salen ya ordenadas.
+     * - Si se excede, pasa a un mapa primitivo con direccionamiento abierto cuya clave es
+     *   epochDay<<32 | código; cada entrada ocupa tres long contiguos (clave, unidades, ingreso
+     *   en centavos) para que una venta toque una sola línea de caché.
+     */
+    static final class DailyTotals {
+        private static final long EMPTY = Long.MIN_VALUE;   // día NO_DATE, que nunca se agrega
+        private static final int STRIDE = 3;
+        private static final int ENTRY_BYTES = 20;
+
+        private final int width;
+        // Modo denso: filas por día a partir de firstDay (null si el día no tiene ventas)
+        private int firstDay;
+        private int[][] units;
+        private long[][] revenue;
+        private long[][] present;
+        private long cells;
+        // Modo disperso (null mientras alcance el denso)
+        private long[] table;
+        private int capacity;
+        private int size;
+
+        /** {@code width}: códigos esperados, el ancho inicial de cada fila. */
+        DailyTotals(int width) {
+            this.width = Math.max(width, 16);
+        }
+
+        private static long key(int day, int code) {
+            return ((long) day << 32) | code;
+        }
+
+        void add(int day, int code, int u, long r) {
+            if (table == null) {
+                long d = (long) day - firstDay;
+                if (units != null && d >= 0 && d < units.length) {
+                    int[] row = units[(int) d];
+                    if (row != null && code < row.length) {
+                        row[code] += u;
+                        revenue[(int) d][code] = Math.addExact(revenue[(int) d][code], r);
+                        present[(int) d][code >>> 6] |= 1L << code;
+                        return;
+                    }
+                }
+                if (makeRoom(day, code)) {
+                    add(day, code, u, r);
+                    return;
+                }
+            }
+            addSparse(key(day, code), u, r);
+        }
+
+        /** Crea o ensancha la fila del día; false si no cabe y se pasó al mapa disperso. */
+        private boolean makeRoom(int day, int code) {
+            if (units == null) {
+                firstDay = day;
+                units = new int[1][];
+                revenue = new long[1][];
+                present = new long[1][];
+            }
+            long from = Math.min(firstDay, (long) day);
+            long to = Math.max((long) firstDay + units.length, (long) day + 1);
+            if (from < firstDay || to > firstDay + units.length) {
+                // Se deja margen hacia el lado en que creció el rango
+                long span = to - from;
+                long slack = Math.min(span, 64);
+                if (from < firstDay) from -= slack; else to += slack;
+                if ((to - from) + cells > DENSE_CELLS) {
+                    toSparse();
+                    return false;
+                }
+                int shift = (int) (firstDay - from);
+                units = resize(units, new int[(int) (to - from)][], shift);
+                revenue = resize(revenue, new long[(int) (to - from)][], shift);
+                present = resize(present, new long[(int) (to - from)][], shift);
+                firstDay = (int) from;
+            }
+            int d = day - firstDay;
+            int old = units[d] == null ? 0 : units[d].length;
+            int len = Math.max(code + 1, Math.max(width, old * 2));
+            if (cells + len - old > DENSE_CELLS) {
+                toSparse();
+                return false;
+            }
+            cells += len - old;
+            units[d] = units[d] == null ? new int[len] : Arrays.copyOf(units[d], len);
+            revenue[d] = revenue[d] == null ? new long[len] : Arrays.copyOf(revenue[d], len);
+            present[d] = present[d] == null ? new long[(len + 63) >>> 6] : Arrays.copyOf(present[d], (len + 63) >>> 6);
+            return true;
+        }
+
+        private static <T> T[] resize(T[] old, T[] grown, int shift) {
+            System.arraycopy(old, 0, grown, shift, old.length);
+            return grown;
+        }
+
+        private void toSparse() {
+            capacity = 1 << 8;
+            table = newTable(capacity);
+            int[][] u = units;
+            long[][] r = revenue;
+            long[][] bits = present;
+            units = null;
+            revenue = null;
+            present = null;
+            if (u == null) return;
+            for (int d = 0; d < u.length; d++) {
+                if (u[d] == null) continue;
+                for (int c = 0; c < u[d].length; c++) {
+                    if ((bits[d][c >>> 6] & (1L << c)) != 0) addSparse(key(firstDay + d, c), u[d][c], r[d][c]);
+                }
+            }
+        }
+
+        private static long[] newTable(int slots) {
+            long[] t = new long[slots * STRIDE];
+            for (int i = 0; i < t.length; i += STRIDE) t[i] = EMPTY;
+            return t;
+        }
+
+        private void addSparse(long key, long u, long r) {
+            int i = slot(key) * STRIDE;
+            table[i + 1] += u;
+            table[i + 2] = Math.addExact(table[i + 2], r);
+        }
+
+        /** Suma otro mapa; {@code remap} traduce sus códigos (null = mismos códigos). */
+        void mergeFrom(DailyTotals other, int[] remap) {
+            other.forEach((day, code, u, r) -> add(day, remap == null ? code : remap[code], u, r));
+        }
+
+        /** Entradas en orden de día y código (denso) o en orden de la tabla (disperso). */
+        private void forEach(EntryVisitor v) {
+            if (table == null) {
+                if (units == null) return;
+                for (int d = 0; d < units.length; d++) {
+                    if (units[d] == null) continue;
+                    int[] u = units[d];
+                    long[] r = revenue[d];
+                    long[] bits = present[d];
+                    for (int w = 0; w < bits.length; w++) {
+                        for (long b = bits[w]; b != 0; b &= b - 1) {
+                            int c = (w << 6) + Long.numberOfTrailingZeros(b);
+                            v.visit(firstDay + d, c, u[c], r[c]);
+                        }
+                    }
+                }
+                return;
+            }
+            for (int i = 0; i < table.length; i += STRIDE) {
+                long k = table[i];
+                if (k != EMPTY) v.visit((int) (k >> 32), (int) k, (int) table[i + 1], table[i + 2]);
+            }
+        }
+
+        private interface EntryVisitor {
+            void visit(int day, int code, int units, long revenue);
+        }
+
+        /** Slot de la clave, insertándola si no existe. */
+        private int slot(long key) {
+            int mask = capacity - 1;
+            int slot = mix(key) & mask;
+            while (true) {
+                long k = table[slot * STRIDE];
+                if (k == key) return slot;
+                if (k == EMPTY) break;
+                slot = (slot + 1) & mask;
+            }
+            if ((size + 1) * 2 > capacity) {
+                grow();
+                return slot(key);
+            }
+            int i = slot * STRIDE;
+            table[i] = key;
+            table[i + 1] = 0;
+            table[i + 2] = 0;
+            size++;
+            return slot;
+        }
+
+        private void grow() {
+            long[] old = table;
+            capacity *= 2;
+            table = newTable(capacity);
+            int mask = capacity - 1;
+            for (int i = 0; i < old.length; i += STRIDE) {
+                long k = old[i];
+                if (k == EMPTY) continue;
+                int slot = mix(k) & mask;
+                while (table[slot * STRIDE] != EMPTY) slot = (slot + 1) & mask;
+                System.arraycopy(old, i, table, slot * STRIDE, STRIDE);
+            }
+        }
+
+        private static int mix(long key) {
+            key *= 0x9E3779B97F4A7C15L;
+            return (int) (key ^ (key >>> 32));
+        }
+
+        private int count() {
+            if (table != null) return size;
+            int n = 0;
+            if (units != null) for (long[] bits : present) if (bits != null) for (long b : bits) n += Long.bitCount(b);
+            return n;
+        }
+
+        /** Copia de las entradas ordenadas por día y luego por código. */
+        Entries sorted() {
+            Entries e = new Entries(count());
+            if (table == null) {
+                int[] n = new int[1];
+                forEach((day, code, u, r) -> {
+                    int j = n[0]++;
+                    e.day[j] = day;
+                    e.code[j] = code;
+                    e.units[j] = u;
+                    e.revenue[j] = r;
+                });
+                return e;
+            }
+            long[] keys = new long[size];
+            int n = 0;
+            for (int i = 0; i < table.length; i += STRIDE) if (table[i] != EMPTY) keys[n++] = table[i];
+            Arrays.sort(keys);
+            for (int j = 0; j < n; j++) {
+                int i = slot(keys[j]) * STRIDE;
+                e.day[j] = (int) (keys[j] >> 32);
+                e.code[j] = (int) keys[j];
+                e.units[j] = (int) table[i + 1];
+                e.revenue[j] = table[i + 2];
+            }
+            return e;
+        }
+
+        /** Las entradas se escriben por tandas en un arreglo de bytes: son millones de registros. */
+        void writeTo(DataOutput out) throws IOException {
+            Entries e = sorted();
+            out.writeInt(e.size);
+            ByteBuffer b = ByteBuffer.allocate(ENTRY_BYTES * 4096);
+            for (int j = 0; j < e.size; j++) {
+                b.putInt(e.day[j]).putInt(e.code[j]).putInt(e.units[j]).putLong(e.revenue[j]);
+                if (!b.hasRemaining() || j == e.size - 1) {
+                    out.write(b.array(), 0, b.position());
+                    b.clear();
+                }
+            }
+        }
+
+        void readFrom(DataInput in) throws IOException {
+            int n = in.readInt();
+            ByteBuffer b = ByteBuffer.allocate(ENTRY_BYTES * 4096);
+            for (int j = 0; j < n; ) {
+                int batch = Math.min(n - j, 4096);
+                in.readFully(b.array(), 0, batch * ENTRY_BYTES);
+                b.clear();
+                for (int k = 0; k < batch; k++) add(b.getInt(), b.getInt(), b.getInt(), b.getLong());
+                j += batch;
+            }
+        }
+
+        /** Entradas de DailyTotals en arreglos paralelos. */
+        static final class Entries {
+            final int size;
+            final int[] day;
+            final int[] code;
+            final int[] units;
+            final long[] revenue;   // centavos
+
+            Entries(int n) {
+                size = n;
+                day = new int[n];
+                code = new int[n];
+                units = new int[n];
+                revenue = new long[n];
+            }
+        }
+    }
+}
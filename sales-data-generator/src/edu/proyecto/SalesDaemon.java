@@ -0,0 +1,114 @@
+package edu.proyecto;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SalesDaemon
+ * -----------
+ * Modo servicio de Main (--watch): un solo proceso que escucha data/input y regenera los
+ * reportes cuando cambian los archivos de entrada, sin pagar en cada entrega el arranque de la
+ * JVM, la carga de clases ni el calentamiento del JIT.
+ * - Los avisos del WatchService se agrupan: se regenera cuando pasan {@code --debounce} ms sin
+ *   cambios nuevos (copiar un archivo grande produce muchos avisos seguidos), pero nunca se
+ *   espera más de MAX_DEBOUNCE_FACTOR veces ese tiempo.
+ * - Entre pasadas se conservan las dimensiones y los agregados (Main.Warm): si sales.csv solo
+ *   creció, cada pasada suma únicamente los bytes nuevos y no lee ni escribe sales_state.bin.
+ *   Con varios archivos sales-*.csv[.gz], si el conjunto solo ganó archivos que van después
+ *   por nombre, cada pasada lee únicamente esos; cualquier otro cambio relee el conjunto.
+ * - El estado se guarda en disco al terminar el proceso (Ctrl+C, SIGTERM), así la siguiente
+ *   ejecución, en modo servicio o no, sigue siendo incremental.
+ * - Un error en una pasada (por ejemplo, un archivo a medio copiar) se informa y se sigue
+ *   escuchando; el próximo cambio vuelve a intentarlo.
+ */
+final class SalesDaemon {
+
+    private static final int MAX_DEBOUNCE_FACTOR = 10;
+
+    private SalesDaemon() {
+    }
+
+    /** Primera pasada y luego una por cada tanda de cambios en {@code inputDir}, hasta que se detenga el proceso. */
+    static void run(Main.Options opts, Path inputDir) throws IOException, InterruptedException {
+        Main.Warm warm = new Main.Warm();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            // Espera a que termine la pasada en curso
+            synchronized (warm) {
+                try {
+                    warm.persist();
+                } catch (IOException e) {
+                    System.err.println("ERROR: No fue posible guardar el estado. " + e.getMessage());
+                }
+            }
+        }, "sales-daemon-shutdown"));
+
+        try (WatchService watcher = inputDir.getFileSystem().newWatchService()) {
+            inputDir.register(watcher, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+            System.out.println("Escuchando cambios en " + inputDir.toAbsolutePath() + " (Ctrl+C para terminar)");
+            pass(opts, warm, System.nanoTime());
+            // --full solo vale para la primera pasada
+            opts.full = false;
+
+            long maxWait = opts.debounceMs * MAX_DEBOUNCE_FACTOR;
+            while (true) {
+                WatchKey key = watcher.take();
+                long first = System.nanoTime();
+                boolean relevant = drain(key, inputDir);
+                // Se espera a que la carpeta quede quieta
+                while (true) {
+                    long waited = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - first);
+                    if (waited >= maxWait) break;
+                    key = watcher.poll(Math.min(opts.debounceMs, maxWait - waited), TimeUnit.MILLISECONDS);
+                    if (key == null) break;
+                    relevant |= drain(key, inputDir);
+                }
+                if (relevant) pass(opts, warm, first);
+            }
+        } catch (ClosedWatchServiceException e) {
+            // el proceso se está cerrando
+        }
+    }
+
+    /** Regenera los reportes e informa la latencia desde el primer aviso de la tanda. */
+    private static void pass(Main.Options opts, Main.Warm warm, long since) {
+        synchronized (warm) {
+            try {
+                Main.run(opts, warm);
+                System.out.println(String.format(Locale.US, "OK: Reportes actualizados (%.0f ms desde el cambio)",
+                        (System.nanoTime() - since) / 1e6));
+            } catch (Exception e) {
+                System.err.println("ERROR: No fue posible generar los reportes; se reintentará con el próximo cambio. " + e.getMessage());
+            }
+        }
+    }
+
+    /** Consume los avisos de una clave; true si alguno toca un archivo de entrada (.csv, .csv.gz o .csv.zst). */
+    private static boolean drain(WatchKey key, Path inputDir) throws IOException {
+        boolean relevant = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW) {
+                relevant = true;
+            } else {
+                String name = event.context().toString().toLowerCase(Locale.ROOT);
+                if (name.endsWith(".csv") || name.endsWith(SalesFiles.Codec.GZIP.extension)
+                        || name.endsWith(SalesFiles.Codec.ZSTD.extension)) relevant = true;
+            }
+        }
+        if (!key.reset() && !Files.isDirectory(inputDir)) {
+            throw new IOException("La carpeta " + inputDir.toAbsolutePath() + " ya no existe");
+        }
+        return relevant;
+    }
+}
@@ -0,0 +1,219 @@
+package edu.proyecto;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * SalesFiles
+ * ----------
+ * Ventas repartidas en varios archivos sales-*.csv, sales-*.csv.gz o sales-*.csv.zst (por ejemplo,
+ * uno por hora), como los que escribe GenerateInfoFiles con --split/--compress.
+ * - El conjunto se ordena por nombre; cada archivo tiene su propia cabecera.
+ * - Cada archivo se lee y descomprime completo en un solo hilo (gzip no se puede partir). Los
+ *   archivos se reparten en grupos contiguos de tamaño parecido, uno por destino: combinar los
+ *   destinos en orden reproduce la lectura de los archivos concatenados, igual que los tramos de
+ *   ChunkedSalesReader.
+ * - zstd no está en el JDK y el proyecto no usa dependencias externas: los .zst se reconocen
+ *   pero se rechazan con un error, en lugar de omitirlos y dar reportes incompletos.
+ */
+final class SalesFiles {
+
+    /** Archivos del conjunto, relativo a la carpeta de entrada. */
+    static final String GLOB = "sales-*.{csv,csv.gz,csv.zst}";
+
+    private static final int BUFFER = 1 << 16;
+
+    /** Formato de compresión, según la extensión del archivo. */
+    enum Codec {
+        NONE(".csv"),
+        GZIP(".csv.gz"),
+        ZSTD(".csv.zst");
+
+        final String extension;
+
+        Codec(String extension) {
+            this.extension = extension;
+        }
+
+        /** Valor de --compress: none, gzip o zstd. */
+        static Codec parse(String v) {
+            switch (v.toLowerCase(Locale.ROOT)) {
+                case "none": return NONE;
+                case "gzip": return GZIP;
+                case "zstd": return ZSTD;
+                default: throw new IllegalArgumentException("Compresión desconocida: " + v + " (none o gzip)");
+            }
+        }
+
+        static Codec of(Path file) {
+            String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+            if (name.endsWith(GZIP.extension)) return GZIP;
+            if (name.endsWith(ZSTD.extension)) return ZSTD;
+            return NONE;
+        }
+
+        /** Contenido descomprimido de {@code file}. */
+        InputStream open(Path file) throws IOException {
+            switch (this) {
+                case GZIP: return new GZIPInputStream(Files.newInputStream(file), BUFFER);
+                case ZSTD: throw unsupported(file);
+                default: return Files.newInputStream(file);
+            }
+        }
+
+        /** Flujo que comprime lo escrito en {@code file}. */
+        OutputStream create(Path file) throws IOException {
+            switch (this) {
+                case GZIP: return new GZIPOutputStream(Files.newOutputStream(file), BUFFER);
+                case ZSTD: throw unsupported(file);
+                default: return new BufferedOutputStream(Files.newOutputStream(file), BUFFER);
+            }
+        }
+
+        private static IOException unsupported(Path file) {
+            return new IOException("No se puede leer ni escribir " + file.getFileName()
+                    + ": zstd no está disponible en el JDK (use gzip o archivos sin comprimir)");
+        }
+    }
+
+    private SalesFiles() { }
+
+    /** Archivos de ventas de {@code dir} que coinciden con GLOB, ordenados por nombre (vacío si no hay). */
+    static List<Path> find(Path dir) throws IOException {
+        List<Path> files = new ArrayList<>();
+        if (!Files.isDirectory(dir)) return files;
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir, GLOB)) {
+            for (Path p : ds) if (Files.isRegularFile(p)) files.add(p);
+        }
+        Collections.sort(files);
+        return files;
+    }
+
+    /**
+     * Nombre, tamaño y fecha de modificación de cada archivo de un conjunto, tomados antes de
+     * leerlo: el modo servicio compara la huella de la pasada anterior con la actual para leer
+     * solo los archivos nuevos.
+     */
+    static final class Fingerprint {
+        private final List<Path> files;
+        private final long[] sizes;
+        private final long[] mtimes;
+
+        private Fingerprint(List<Path> files, long[] sizes, long[] mtimes) {
+            this.files = files;
+            this.sizes = sizes;
+            this.mtimes = mtimes;
+        }
+
+        static Fingerprint of(List<Path> files) throws IOException {
+            long[] sizes = new long[files.size()];
+            long[] mtimes = new long[files.size()];
+            for (int i = 0; i < sizes.length; i++) {
+                sizes[i] = Files.size(files.get(i));
+                mtimes[i] = Files.getLastModifiedTime(files.get(i)).toMillis();
+            }
+            return new Fingerprint(new ArrayList<>(files), sizes, mtimes);
+        }
+
+        /** Cantidad de archivos. */
+        int count() { return sizes.length; }
+
+        /**
+         * true si {@code next} empieza con estos mismos archivos sin cambios, es decir, si el
+         * conjunto solo ganó archivos que van después por nombre (como las entregas por hora).
+         */
+        boolean prefixOf(Fingerprint next) {
+            if (next.sizes.length < sizes.length) return false;
+            for (int i = 0; i < sizes.length; i++) {
+                if (!files.get(i).equals(next.files.get(i)) || sizes[i] != next.sizes[i] || mtimes[i] != next.mtimes[i]) return false;
+            }
+            return true;
+        }
+    }
+
+    /** Tamaño en disco (comprimido) del conjunto. */
+    static long size(List<Path> files) throws IOException {
+        long total = 0;
+        for (Path p : files) total += Files.size(p);
+        return total;
+    }
+
+    /**
+     * Lee todos los archivos repartiéndolos entre a lo sumo {@code sinks.length} hilos; devuelve
+     * las líneas leídas (también las descartadas, que van a {@code rejects} con el nombre del archivo).
+     */
+    static long read(List<Path> files, Main.SaleSink[] sinks, SalesRejects rejects) throws IOException {
+        for (Path p : files) if (Codec.of(p) == Codec.ZSTD) throw Codec.unsupported(p);
+        // Los tramos de rechazos se piden en el orden de los archivos
+        SalesRejects.Range[] ranges = new SalesRejects.Range[files.size()];
+        for (int i = 0; i < ranges.length; i++) ranges[i] = rejects.range(files.get(i).getFileName().toString());
+
+        int[] bounds = groups(files, Math.min(sinks.length, files.size()));
+        int n = bounds.length - 1;
+        if (n <= 1) return readGroup(files, 0, files.size(), sinks[0], ranges);
+
+        List<Callable<Long>> parts = new ArrayList<>(n);
+        for (int k = 0; k < n; k++) {
+            final int from = bounds[k];
+            final int to = bounds[k + 1];
+            final Main.SaleSink sink = sinks[k];
+            parts.add(() -> readGroup(files, from, to, sink, ranges));
+        }
+        return ChunkedSalesReader.runAll(parts);
+    }
+
+    /**
+     * Límites de hasta {@code n} grupos contiguos de archivos con unos total/n bytes cada uno:
+     * el grupo k es [bounds[k], bounds[k + 1]). Ningún grupo queda vacío.
+     */
+    private static int[] groups(List<Path> files, int n) throws IOException {
+        if (n <= 1) return new int[] { 0, files.size() };
+        long[] sizes = new long[files.size()];
+        long total = 0;
+        for (int i = 0; i < sizes.length; i++) total += sizes[i] = Files.size(files.get(i));
+        int[] bounds = new int[n + 1];
+        int k = 1;
+        long acc = 0;
+        for (int i = 0; i < sizes.length && k < n; i++) {
+            acc += sizes[i];
+            // Se corta al alcanzar la cuota del grupo, dejando al menos un archivo por grupo restante
+            if (acc >= total / n * k || sizes.length - (i + 1) == n - k) bounds[k++] = i + 1;
+        }
+        bounds[n] = sizes.length;
+        return bounds;
+    }
+
+    private static long readGroup(List<Path> files, int from, int to, Main.SaleSink sink,
+                                  SalesRejects.Range[] ranges) throws IOException {
+        long count = 0;
+        for (int i = from; i < to; i++) count += readFile(files.get(i), sink, ranges[i]);
+        return count;
+    }
+
+    private static long readFile(Path file, Main.SaleSink sink, SalesRejects.Range rejects) throws IOException {
+        long count = 0;
+        try (CsvTokenizer.LineReader lr = new CsvTokenizer.LineReader(Codec.of(file).open(file))) {
+            if (!lr.next()) throw new IOException("Archivo vacío: " + file);
+            Main.SaleColumns cols = new Main.SaleColumns(Main.splitHeader(lr.lineString()));
+            CsvTokenizer row = new CsvTokenizer();
+            while (lr.next()) {
+                if ((count & (ChunkedSalesReader.CANCEL_CHECK - 1)) == 0) ChunkedSalesReader.stopIfCancelled();
+                ChunkedSalesReader.accept(row, lr, cols, sink, rejects, count++);
+            }
+        }
+        rejects.end(count);
+        return count;
+    }
+}
@@ -0,0 +1,314 @@
+package edu.proyecto;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * SalesRejects
+ * ------------
+ * Filas de ventas que no entran en los reportes y por qué.
+ * - Motivos (Reason): menos columnas que la cabecera, cantidad que no es un entero y producto
+ *   que no está en products.csv. Los dos primeros son errores de formato y cuentan para el
+ *   límite --max-errors; los productos desconocidos siempre se descartaron sin detener la lectura.
+ * - Cada fila descartada va a rejects.csv (línea, motivo, contenido) por un hilo escritor con
+ *   una cola acotada: los hilos de lectura solo encolan. Las filas válidas no pasan por aquí.
+ * - Con lectura paralela cada tramo (Range) numera sus líneas desde 0; el escritor conoce la
+ *   primera línea de un tramo cuando terminan los anteriores y mientras tanto retiene sus filas,
+ *   así rejects.csv queda en el orden del archivo. Si la lectura se corta antes (--max-errors),
+ *   las filas retenidas se escriben igual con la posición relativa a su tramo: "@<byte>+<n>" es
+ *   la n-ésima línea desde el byte donde empieza el tramo.
+ * - Con varios archivos de ventas (range(String)) cada tramo es un archivo entero y la columna
+ *   line lleva su nombre: "sales-00003.csv.gz:17".
+ * - Los contadores por motivo se guardan con el estado incremental, así el resumen cubre todo
+ *   sales.csv y no solo lo leído en la última ejecución.
+ */
+final class SalesRejects implements Closeable {
+
+    static final String HEADER = "line,reason,content";
+    /** Primera línea de datos de un archivo: la cabecera es la línea 1. */
+    static final long FIRST_LINE = 2;
+    private static final int QUEUE = 1024;
+
+    enum Reason {
+        COLUMNS("columnas", "menos columnas que la cabecera"),
+        QUANTITY("cantidad", "cantidad que no es un entero"),
+        PRODUCT("producto", "producto que no está en products.csv");
+
+        /** Valor de la columna reason de rejects.csv. */
+        final String code;
+        final String description;
+
+        Reason(String code, String description) {
+            this.code = code;
+            this.description = description;
+        }
+
+        /** Error de formato: cuenta para --max-errors. */
+        boolean error() { return this != PRODUCT; }
+    }
+
+    private final long maxErrors;
+    private final AtomicLongArray counts = new AtomicLongArray(Reason.values().length);
+    private final AtomicLong errors = new AtomicLong();
+    private Log log;   // null = solo contar
+    private int ranges;
+
+    /** {@code maxErrors}: errores de formato admitidos en esta lectura; uno más la detiene. */
+    SalesRejects(long maxErrors) {
+        this.maxErrors = maxErrors;
+    }
+
+    /** Parte de los contadores de una lectura anterior (punto de control); no cuentan para el límite. */
+    void restore(long[] previous) {
+        for (int i = 0; i < previous.length; i++) counts.addAndGet(i, previous[i]);
+    }
+
+    /**
+     * Empieza a escribir las filas descartadas en {@code file}, conservando sus primeros
+     * {@code keep} bytes (0 = archivo nuevo). La primera línea del primer tramo es {@code firstLine}.
+     */
+    void log(Path file, long keep, long firstLine) throws IOException {
+        if (keep > 0 && (!Files.exists(file) || Files.size(file) < keep)) keep = 0;
+        CsvWriter w = new CsvWriter(file, keep);
+        if (keep == 0) w.write(HEADER).newLine();
+        log = new Log(w, firstLine);
+    }
+
+    /** Un tramo nuevo, a continuación del anterior (se piden en el orden del archivo). */
+    Range range() {
+        return new Range(ranges++, null, -1);
+    }
+
+    /** Como {@link #range()}, para un tramo que empieza en el byte {@code offset} del archivo. */
+    Range range(long offset) {
+        return new Range(ranges++, null, offset);
+    }
+
+    /** Un tramo que es el archivo {@code source} completo, numerado desde su primera línea de datos. */
+    Range range(String source) {
+        return new Range(ranges++, source, -1);
+    }
+
+    long count(Reason r) { return counts.get(r.ordinal()); }
+
+    long[] counts() {
+        long[] c = new long[counts.length()];
+        for (int i = 0; i < c.length; i++) c[i] = counts.get(i);
+        return c;
+    }
+
+    long total() {
+        long t = 0;
+        for (int i = 0; i < counts.length(); i++) t += counts.get(i);
+        return t;
+    }
+
+    /** Espera a que lo encolado esté escrito; devuelve el tamaño de rejects.csv (0 sin archivo). */
+    long sync() throws IOException {
+        return log != null ? log.sync() : 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (log != null) log.close();
+    }
+
+    /** Tramo contiguo de líneas leído por un hilo. */
+    final class Range {
+        private final int seq;
+        private final String source;   // null = el archivo de log()
+        private final long offset;     // byte donde empieza el tramo (-1 = desconocido)
+
+        private Range(int seq, String source, long offset) {
+            this.seq = seq;
+            this.source = source;
+            this.offset = offset;
+        }
+
+        /** Descarta la fila {@code line} del tramo (desde 0); lanza si se supera --max-errors. */
+        void reject(long line, Reason reason, CsvTokenizer row) {
+            counts.incrementAndGet(reason.ordinal());
+            if (log != null) log.put(new Entry(seq, source, offset, line, reason, row.line()));
+            if (reason.error() && errors.incrementAndGet() > maxErrors) {
+                throw new IllegalArgumentException("Más de " + maxErrors + " filas con errores en las ventas (--max-errors);"
+                        + " ver rejects.csv. Última: " + reason.description + ": " + row.line());
+            }
+        }
+
+        /** El tramo terminó con {@code lines} líneas. */
+        void end(long lines) {
+            if (log != null) log.put(new End(seq, lines));
+        }
+    }
+
+    /* ==================== ESCRITOR ==================== */
+
+    private static final class Entry {
+        final int seq;
+        final String source;
+        final long offset;
+        final long line;
+        final Reason reason;
+        final String content;
+
+        Entry(int seq, String source, long offset, long line, Reason reason, String content) {
+            this.seq = seq;
+            this.source = source;
+            this.offset = offset;
+            this.line = line;
+            this.reason = reason;
+            this.content = content;
+        }
+    }
+
+    private static final class End {
+        final int seq;
+        final long lines;
+
+        End(int seq, long lines) {
+            this.seq = seq;
+            this.lines = lines;
+        }
+    }
+
+    private static final Object STOP = new Object();
+
+    /** Hilo que escribe rejects.csv; numera las líneas en el orden de los tramos. */
+    private static final class Log implements Runnable {
+        private final BlockingQueue<Object> queue = new ArrayBlockingQueue<>(QUEUE);
+        private final CsvWriter out;
+        private final Thread thread;
+        private volatile IOException failure;
+        // Estado del hilo escritor
+        private int current;          // tramo que se está escribiendo
+        private long base;            // número de línea de su primera fila
+        private final Map<Integer, List<Entry>> pending = new TreeMap<>();
+        private final Map<Integer, Long> ended = new HashMap<>();
+
+        Log(CsvWriter out, long firstLine) {
+            this.out = out;
+            this.base = firstLine;
+            thread = new Thread(this, "rejects-writer");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        void put(Object message) {
+            try {
+                queue.put(message);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Lectura interrumpida", e);
+            }
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                Object m;
+                try {
+                    m = queue.take();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                if (m == STOP) return;
+                long size = -1;
+                try {
+                    if (failure == null) {
+                        if (m instanceof CompletableFuture) {
+                            out.flush();
+                            size = out.size();
+                        } else {
+                            handle(m);
+                        }
+                    }
+                } catch (IOException e) {
+                    // Se sigue vaciando la cola para no bloquear a los lectores; el error se informa después
+                    failure = e;
+                }
+                if (m instanceof CompletableFuture) {
+                    @SuppressWarnings("unchecked")
+                    CompletableFuture<Long> done = (CompletableFuture<Long>) m;
+                    done.complete(size);
+                }
+            }
+        }
+
+        private void handle(Object m) throws IOException {
+            if (m instanceof Entry) {
+                Entry e = (Entry) m;
+                if (e.seq == current) write(e);
+                else pending.computeIfAbsent(e.seq, k -> new ArrayList<>()).add(e);
+                return;
+            }
+            End end = (End) m;
+            ended.put(end.seq, end.lines);
+            // Avanza por los tramos ya terminados, escribiendo lo retenido de cada uno
+            while (ended.containsKey(current)) {
+                base += ended.remove(current);
+                current++;
+                List<Entry> held = pending.remove(current);
+                if (held != null) for (Entry e : held) write(e);
+            }
+        }
+
+        private void write(Entry e) throws IOException {
+            if (e.source == null) out.write(base + e.line);
+            else out.writeField(e.source + ":" + (FIRST_LINE + e.line));
+            out.write(',').write(e.reason.code).write(',').writeField(e.content).newLine();
+        }
+
+        long sync() throws IOException {
+            CompletableFuture<Long> done = new CompletableFuture<>();
+            put(done);
+            try {
+                Long size = done.get();
+                if (failure != null) throw failure;
+                return size;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Escritura de rechazos interrumpida", e);
+            } catch (ExecutionException e) {
+                throw new IOException(e.getCause());
+            }
+        }
+
+        void close() throws IOException {
+            put(STOP);
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            // Si la lectura se cortó, las filas retenidas de tramos posteriores (en orden de tramo) no tienen
+            // número de línea: van con su posición en el tramo, o con el número exacto si el tramo es un archivo
+            try {
+                for (List<Entry> held : pending.values()) {
+                    for (Entry e : held) {
+                        if (e.source != null) write(e);
+                        else {
+                            if (e.offset >= 0) out.writeField("@" + e.offset + "+" + (e.line + 1));
+                            out.write(',').write(e.reason.code).write(',').writeField(e.content).newLine();
+                        }
+                    }
+                }
+            } finally {
+                out.close();
+            }
+            if (failure != null) throw failure;
+        }
+    }
+}
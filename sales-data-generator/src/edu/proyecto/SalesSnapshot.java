@@ -0,0 +1,193 @@
+package edu.proyecto;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * SalesSnapshot
+ * -------------
+ * Estado persistido de la agregación de ventas para el procesamiento incremental.
+ * - Guarda los SalesAggregates junto con el punto de control: hasta qué byte de sales.csv
+ *   ya se sumó (siempre el fin de una línea completa) y cuántas filas había, más los
+ *   contadores de filas descartadas y hasta qué byte rejects.csv las lista.
+ * - Si el archivo solo creció, la siguiente ejecución restaura el estado y lee desde ahí.
+ * - Se descarta (y se reconstruye todo) si el archivo se truncó o se reescribió: tamaño menor
+ *   que el punto de control, mismo tamaño con otra fecha de modificación, fecha anterior,
+ *   o cambios en la cabecera o en los últimos bytes ya procesados. También si cambiaron
+ *   sellers.csv o products.csv, porque de ellos dependen los códigos y los precios.
+ */
+final class SalesSnapshot {
+
+    private static final int MAGIC = 0x53414c45;   // "SALE"
+    private static final int VERSION = 6;
+
+    /** Bytes previos al punto de control que se comparan para detectar reescrituras. */
+    private static final int TAIL_CHECK = 4096;
+
+    final long offset;
+    final long lines;
+    final SalesAggregates aggregates;
+    final long[] rejects;        // filas descartadas por motivo (SalesRejects.Reason)
+    final long rejectsBytes;     // tamaño de rejects.csv en el punto de control
+    // Huella de sales.csv al tomar el punto de control
+    private final long size;
+    private final long mtime;
+    private final long headerCrc;
+    private final long tailCrc;
+
+    private SalesSnapshot(long offset, long lines, SalesAggregates aggregates, long[] rejects, long rejectsBytes,
+                          long size, long mtime, long headerCrc, long tailCrc) {
+        this.offset = offset;
+        this.lines = lines;
+        this.aggregates = aggregates;
+        this.rejects = rejects;
+        this.rejectsBytes = rejectsBytes;
+        this.size = size;
+        this.mtime = mtime;
+        this.headerCrc = headerCrc;
+        this.tailCrc = tailCrc;
+    }
+
+    /**
+     * Punto de control tras haber sumado las primeras {@code lines} filas, que terminan en el
+     * byte {@code offset}. {@code size} y {@code mtime} son los del archivo antes de leerlo.
+     */
+    static SalesSnapshot of(Path sales, long offset, long size, long mtime, long lines, SalesAggregates agg,
+                            long[] rejects, long rejectsBytes) throws IOException {
+        try (FileChannel ch = FileChannel.open(sales, StandardOpenOption.READ)) {
+            return new SalesSnapshot(offset, lines, agg, rejects, rejectsBytes, size, mtime, headerCrc(ch), tailCrc(ch, offset));
+        }
+    }
+
+    /** true si {@code sales} sigue siendo una extensión del archivo de este punto de control. */
+    boolean extendedBy(Path sales) throws IOException {
+        return unchangedUpTo(sales, offset, size, mtime, headerCrc, tailCrc);
+    }
+
+    /**
+     * Restaura el estado si sigue siendo válido para {@code sales}; null si no existe,
+     * está dañado, se guardó en otro modo aproximado o el archivo de ventas ya no es una
+     * extensión del que se procesó.
+     */
+    static SalesSnapshot load(Path file, Path sales, long dimensionsCrc, Main.Dimensions dims,
+                              int topCounters, int distinctPrecision) {
+        if (!Files.exists(file)) return null;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) return null;
+            if (!in.readUTF().equals(sales.getFileName().toString())) return null;
+            if (in.readLong() != dimensionsCrc) return null;
+            long offset = in.readLong();
+            long size = in.readLong();
+            long mtime = in.readLong();
+            long headerCrc = in.readLong();
+            long tailCrc = in.readLong();
+            if (!unchangedUpTo(sales, offset, size, mtime, headerCrc, tailCrc)) return null;
+            long lines = in.readLong();
+            long[] rejects = new long[in.readInt()];
+            for (int i = 0; i < rejects.length; i++) rejects[i] = in.readLong();
+            long rejectsBytes = in.readLong();
+            SalesAggregates agg = SalesAggregates.readFrom(in, dims.sellerIds, dims.productIds, dims.unitCents, topCounters, distinctPrecision);
+            return new SalesSnapshot(offset, lines, agg, rejects, rejectsBytes, size, mtime, headerCrc, tailCrc);
+        } catch (IOException | RuntimeException e) {
+            // Estado ilegible o incompatible: se reconstruye desde cero
+            return null;
+        }
+    }
+
+    /**
+     * Guarda el estado con la huella tomada en {@link #of}, aunque el archivo haya cambiado
+     * después. Se escribe en un temporal y se renombra, así nunca queda un estado a medias.
+     */
+    void save(Path file, Path sales, long dimensionsCrc) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(sales.getFileName().toString());
+            out.writeLong(dimensionsCrc);
+            out.writeLong(offset);
+            out.writeLong(size);
+            out.writeLong(mtime);
+            out.writeLong(headerCrc);
+            out.writeLong(tailCrc);
+            out.writeLong(lines);
+            out.writeInt(rejects.length);
+            for (long r : rejects) out.writeLong(r);
+            out.writeLong(rejectsBytes);
+            aggregates.writeTo(out);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /** CRC32 del contenido de varios archivos, en orden (para las dimensiones). */
+    static long checksum(Path... files) throws IOException {
+        CRC32 crc = new CRC32();
+        byte[] buf = new byte[1 << 16];
+        for (Path f : files) {
+            try (InputStream in = Files.newInputStream(f)) {
+                for (int n; (n = in.read(buf)) > 0; ) crc.update(buf, 0, n);
+            }
+        }
+        return crc.getValue();
+    }
+
+    private static boolean unchangedUpTo(Path sales, long offset, long size, long mtime,
+                                         long headerCrc, long tailCrc) throws IOException {
+        long currentSize = Files.size(sales);
+        long currentMtime = Files.getLastModifiedTime(sales).toMillis();
+        if (currentSize < offset) return false;                          // truncado
+        if (currentSize == size && currentMtime != mtime) return false;  // reescrito en el lugar
+        if (currentMtime < mtime) return false;                          // reemplazado por uno anterior
+        try (FileChannel ch = FileChannel.open(sales, StandardOpenOption.READ)) {
+            return headerCrc(ch) == headerCrc && tailCrc(ch, offset) == tailCrc;
+        }
+    }
+
+    /**
+     * true si {@code sales} no cambió en absoluto: mismo tamaño y fecha de modificación, misma
+     * cabecera y mismos bytes antes de {@code offset}. Lo usan las copias derivadas (caché columnar,
+     * índice por fecha), que a diferencia del estado no admiten ni siquiera agregados.
+     */
+    static boolean sameFile(Path sales, long offset, long size, long mtime, long headerCrc, long tailCrc) throws IOException {
+        if (Files.size(sales) != size || Files.getLastModifiedTime(sales).toMillis() != mtime) return false;
+        try (FileChannel ch = FileChannel.open(sales, StandardOpenOption.READ)) {
+            return headerCrc(ch) == headerCrc && tailCrc(ch, offset) == tailCrc;
+        }
+    }
+
+    /** CRC32 de la línea de cabecera (con su terminador). */
+    static long headerCrc(FileChannel ch) throws IOException {
+        return crc(ch, 0, ChunkedSalesReader.nextLineStart(ch, 0, ch.size()));
+    }
+
+    /** CRC32 de los TAIL_CHECK bytes anteriores a {@code offset}. */
+    static long tailCrc(FileChannel ch, long offset) throws IOException {
+        return crc(ch, Math.max(0, offset - TAIL_CHECK), offset);
+    }
+
+    private static long crc(FileChannel ch, long from, long to) throws IOException {
+        CRC32 crc = new CRC32();
+        ByteBuffer bb = ByteBuffer.allocate(8192);
+        for (long pos = from; pos < to; ) {
+            bb.clear();
+            bb.limit((int) Math.min(bb.capacity(), to - pos));
+            int n = ch.read(bb, pos);
+            if (n <= 0) break;
+            bb.flip();
+            crc.update(bb);
+            pos += n;
+        }
+        return crc.getValue();
+    }
+}
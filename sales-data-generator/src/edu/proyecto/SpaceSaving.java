@@ -0,0 +1,283 @@
+package edu.proyecto;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * SpaceSaving
+ * -----------
+ * Elementos más frecuentes (heavy hitters) por entidad con el algoritmo Space-Saving ponderado:
+ * por ejemplo, para cada vendedor, qué producto vendió más unidades.
+ * - Cada entidad tiene a lo sumo {@code counters} contadores. Un elemento nuevo con la tabla
+ *   llena reemplaza al contador mínimo y hereda su cuenta como error, así las cuentas solo
+ *   sobreestiman y el error de cada una es <= unidades de la entidad / counters.
+ * - Mientras una entidad no tuvo desalojos sus cuentas son exactas.
+ * - Los contadores forman un montículo de mínimos (el reemplazo es siempre la raíz) con un
+ *   índice elemento -> contador de direccionamiento abierto.
+ * - Las cantidades <= 0 de un elemento no vigilado se ignoran: no pueden volverlo el máximo.
+ */
+final class SpaceSaving {
+
+    private final int counters;
+    private Summary[] summaries = new Summary[16];
+
+    /** {@code counters}: contadores por entidad (k = 1/ε). */
+    SpaceSaving(int counters) {
+        this.counters = counters;
+    }
+
+    int counters() { return counters; }
+
+    /** Suma {@code weight} unidades del elemento {@code item} a la entidad {@code entity}. */
+    void add(int entity, int item, long weight) {
+        Summary s = summary(entity);
+        s.total += weight;
+        s.add(item, weight, 0);
+    }
+
+    private Summary summary(int entity) {
+        if (entity >= summaries.length) summaries = Arrays.copyOf(summaries, Math.max(entity + 1, summaries.length * 2));
+        Summary s = summaries[entity];
+        if (s == null) s = summaries[entity] = new Summary(counters);
+        return s;
+    }
+
+    /**
+     * Suma otro resumen, que cubre filas posteriores. {@code entityRemap} e {@code itemRemap}
+     * traducen sus códigos (null = mismos códigos). Cada contador ajeno entra como una venta
+     * con su cuenta, así que el error puede llegar a sumar el de ambos resúmenes.
+     */
+    void mergeFrom(SpaceSaving other, int[] entityRemap, int[] itemRemap) {
+        for (int e = 0; e < other.summaries.length; e++) {
+            Summary o = other.summaries[e];
+            if (o == null) continue;
+            Summary s = summary(entityRemap == null ? e : entityRemap[e]);
+            s.total += o.total;
+            s.evicted |= o.evicted;
+            for (int c = 0; c < o.size; c++) {
+                int item = itemRemap == null ? o.item[c] : itemRemap[o.item[c]];
+                s.add(item, o.count[c], o.error[c]);
+            }
+        }
+    }
+
+    /** Elemento de mayor cuenta de la entidad (a igual cuenta, el de menor código) o -1. */
+    int top(int entity) {
+        Summary s = entity < summaries.length ? summaries[entity] : null;
+        return s == null ? -1 : s.top();
+    }
+
+    /** Cuenta estimada del elemento top (cota superior de la real) o 0. */
+    long topCount(int entity) {
+        Summary s = entity < summaries.length ? summaries[entity] : null;
+        if (s == null) return 0;
+        int c = s.topCounter();
+        return c < 0 ? 0 : s.count[c];
+    }
+
+    /** true si ninguna entidad tuvo desalojos (todas las cuentas son exactas). */
+    boolean exact() {
+        for (Summary s : summaries) if (s != null && s.evicted) return false;
+        return true;
+    }
+
+    /** Mayor error posible entre los elementos top de todas las entidades, en unidades. */
+    long maxTopError() {
+        long max = 0;
+        for (Summary s : summaries) {
+            if (s == null) continue;
+            int c = s.topCounter();
+            if (c >= 0) max = Math.max(max, s.error[c]);
+        }
+        return max;
+    }
+
+    /* ==================== PERSISTENCIA ==================== */
+
+    void writeTo(DataOutput out) throws IOException {
+        int n = 0;
+        for (Summary s : summaries) if (s != null) n++;
+        out.writeInt(n);
+        for (int e = 0; e < summaries.length; e++) {
+            Summary s = summaries[e];
+            if (s == null) continue;
+            out.writeInt(e);
+            out.writeLong(s.total);
+            out.writeBoolean(s.evicted);
+            out.writeInt(s.size);
+            for (int c = 0; c < s.size; c++) {
+                out.writeInt(s.item[c]);
+                out.writeLong(s.count[c]);
+                out.writeLong(s.error[c]);
+            }
+        }
+    }
+
+    void readFrom(DataInput in) throws IOException {
+        int n = in.readInt();
+        for (int i = 0; i < n; i++) {
+            Summary s = summary(in.readInt());
+            s.total = in.readLong();
+            s.evicted = in.readBoolean();
+            int size = in.readInt();
+            if (size > counters) throw new IOException("Resumen Space-Saving con más contadores que " + counters);
+            for (int c = 0; c < size; c++) s.insert(in.readInt(), in.readLong(), in.readLong());
+        }
+    }
+
+    /* ==================== RESUMEN DE UNA ENTIDAD ==================== */
+
+    /**
+     * Contadores de una entidad. Los arreglos crecen hasta {@code capacity}, así una entidad
+     * con pocos elementos ocupa poco. heap[h] = contador, pos[c] = posición en el montículo.
+     */
+    private static final class Summary {
+        private final int capacity;
+        int[] item = new int[4];
+        long[] count = new long[4];
+        long[] error = new long[4];
+        private int[] heap = new int[4];
+        private int[] pos = new int[4];
+        private int[] index = new int[8];   // slot -> contador + 1 (0 = vacío)
+        int size;
+        long total;
+        boolean evicted;
+
+        Summary(int capacity) {
+            this.capacity = capacity;
+        }
+
+        /** Suma {@code weight} (con error heredado {@code err}) al elemento, reemplazando el mínimo si hace falta. */
+        void add(int x, long weight, long err) {
+            int c = find(x);
+            if (c >= 0) {
+                count[c] += weight;
+                error[c] += err;
+                if (weight >= 0) siftDown(pos[c]);
+                else siftUp(pos[c]);
+                return;
+            }
+            if (size < capacity) {
+                insert(x, weight, err);
+                return;
+            }
+            if (weight <= 0) return;
+            // Tabla llena: el elemento nuevo toma el contador mínimo y hereda su cuenta como error
+            int min = heap[0];
+            remove(item[min]);
+            item[min] = x;
+            error[min] = count[min] + err;
+            count[min] += weight;
+            put(x, min);
+            siftDown(0);
+            evicted = true;
+        }
+
+        void insert(int x, long weight, long err) {
+            if (size == item.length) grow();
+            int c = size++;
+            item[c] = x;
+            count[c] = weight;
+            error[c] = err;
+            heap[c] = c;
+            pos[c] = c;
+            put(x, c);
+            siftUp(c);
+        }
+
+        private void grow() {
+            int len = Math.min(capacity, item.length * 2);
+            item = Arrays.copyOf(item, len);
+            count = Arrays.copyOf(count, len);
+            error = Arrays.copyOf(error, len);
+            heap = Arrays.copyOf(heap, len);
+            pos = Arrays.copyOf(pos, len);
+            index = new int[Integer.highestOneBit(len * 2 - 1) * 2];
+            for (int c = 0; c < size; c++) put(item[c], c);
+        }
+
+        int topCounter() {
+            int best = -1;
+            for (int c = 0; c < size; c++) {
+                if (best < 0 || count[c] > count[best] || (count[c] == count[best] && item[c] < item[best])) best = c;
+            }
+            return best;
+        }
+
+        int top() {
+            int c = topCounter();
+            return c < 0 ? -1 : item[c];
+        }
+
+        /* ---------- índice elemento -> contador (sondeo lineal) ---------- */
+
+        private static int mix(int x) {
+            int h = x * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+
+        private int find(int x) {
+            int mask = index.length - 1;
+            for (int slot = mix(x) & mask; ; slot = (slot + 1) & mask) {
+                int c = index[slot] - 1;
+                if (c < 0) return -1;
+                if (item[c] == x) return c;
+            }
+        }
+
+        private void put(int x, int c) {
+            int mask = index.length - 1;
+            int slot = mix(x) & mask;
+            while (index[slot] != 0) slot = (slot + 1) & mask;
+            index[slot] = c + 1;
+        }
+
+        /** Borra {@code x} del índice corriendo hacia atrás las entradas siguientes del mismo grupo. */
+        private void remove(int x) {
+            int mask = index.length - 1;
+            int slot = mix(x) & mask;
+            while (item[index[slot] - 1] != x) slot = (slot + 1) & mask;
+            for (int next = (slot + 1) & mask; index[next] != 0; next = (next + 1) & mask) {
+                int home = mix(item[index[next] - 1]) & mask;
+                // La entrada puede ocupar el hueco si su posición ideal no está entre el hueco y ella
+                if (((next - home) & mask) >= ((next - slot) & mask)) {
+                    index[slot] = index[next];
+                    slot = next;
+                }
+            }
+            index[slot] = 0;
+        }
+
+        /* ---------- montículo de mínimos por cuenta ---------- */
+
+        private void siftUp(int h) {
+            int c = heap[h];
+            while (h > 0) {
+                int parent = (h - 1) >>> 1;
+                if (count[heap[parent]] <= count[c]) break;
+                heap[h] = heap[parent];
+                pos[heap[h]] = h;
+                h = parent;
+            }
+            heap[h] = c;
+            pos[c] = h;
+        }
+
+        private void siftDown(int h) {
+            int c = heap[h];
+            while (true) {
+                int child = 2 * h + 1;
+                if (child >= size) break;
+                if (child + 1 < size && count[heap[child + 1]] < count[heap[child]]) child++;
+                if (count[heap[child]] >= count[c]) break;
+                heap[h] = heap[child];
+                pos[heap[h]] = h;
+                h = child;
+            }
+            heap[h] = c;
+            pos[c] = h;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package edu.proyecto;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * CsvTokenizerRegressionTest
+ * --------------------------
+ * Corpus de regresión del tokenizador: CsvTokenizer + LineReader deben dar los mismos campos que
+ * el parseCSV original (BufferedReader.readLine + parseCSV con List/StringBuilder).
+ * - test/fixtures/tokenizer_corpus.csv: comillas y comillas dobladas, comas dentro de comillas,
+ *   comillas sin cerrar o en medio de un campo, signos y cantidades que desbordan int, texto
+ *   multibyte y líneas terminadas en LF, CRLF y CR.
+ * - test/fixtures/tokenizer_expected.tsv: salida del parseCSV original para ese corpus, una línea
+ *   por registro: el resultado de Integer.parseInt de quantity (o "-" si falta la columna) y
+ *   luego cada campo, separados por tabuladores ("\" y tabulador escapados como \\ y \t).
+ *   No se regenera con el código actual: es la referencia del comportamiento anterior.
+ */
+class CsvTokenizerRegressionTest {
+
+    // Surefire corre las pruebas en target/test-run; basedir es la carpeta del módulo
+    private static final Path FIXTURES = Paths.get(System.getProperty("basedir", "."), "test", "fixtures");
+    private static final int QUANTITY = 3;
+
+    @Test
+    void matchesOriginalParseCsv() throws IOException {
+        List<String> expected = Files.readAllLines(FIXTURES.resolve("tokenizer_expected.tsv"), StandardCharsets.UTF_8);
+        List<String> actual = new ArrayList<>();
+        try (CsvTokenizer.LineReader lr = new CsvTokenizer.LineReader(Files.newInputStream(FIXTURES.resolve("tokenizer_corpus.csv")))) {
+            CsvTokenizer row = new CsvTokenizer();
+            while (lr.next()) actual.add(describe(row, lr));
+        }
+        assertEquals(expected.size(), actual.size(), "cantidad de registros");
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i), actual.get(i), "registro " + (i + 1));
+        }
+    }
+
+    /** La línea actual en el formato de tokenizer_expected.tsv. */
+    private static String describe(CsvTokenizer row, CsvTokenizer.LineReader lr) {
+        int n = row.tokenize(lr.buffer(), lr.lineStart(), lr.lineEnd());
+        StringBuilder sb = new StringBuilder();
+        if (n <= QUANTITY) {
+            sb.append('-');
+        } else {
+            try {
+                sb.append(row.parseInt(QUANTITY));
+            } catch (NumberFormatException e) {
+                sb.append("NumberFormatException");
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            sb.append('\t').append(row.string(i).replace("\\", "\\\\").replace("\t", "\\t"));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,92 @@
+package edu.proyecto;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * WarmPassTest
+ * ------------
+ * Modo servicio (Main.Warm): una pasada que falla a mitad de lectura no debe dejar el punto de
+ * control en memoria con filas sumadas; la pasada siguiente continúa desde su byte y las sumaría
+ * dos veces. Trabaja en data/ relativo al directorio de trabajo, que en Maven es target/test-run
+ * (ver pom.xml), nunca en los datos del proyecto.
+ */
+class WarmPassTest {
+
+    private static final Path DATA = Paths.get("data");
+    private static final Path INPUT = DATA.resolve("input");
+    private static final Path OUTPUT = DATA.resolve("output");
+    private static final String[] REPORTS = {
+        "report_sales_by_seller.csv", "report_products_by_quantity.csv",
+        "report_sellers_by_month.csv", "report_products_by_month.csv", "rejects.csv"
+    };
+
+    @Test
+    void failedPassDoesNotCountRowsTwice() throws IOException {
+        deleteData();
+        Files.createDirectories(INPUT);
+        write("sellers.csv", "seller_id,seller_name\nS001,Ana\nS002,Beto\nS003,Carla\n");
+        write("products.csv", "product_id,product_name,category,unit_price\n"
+                + "P001,Uno,A,10.50\nP002,Dos,A,3.25\nP003,Tres,B,99.99\nP004,Cuatro,B,0.10\n");
+        write("sales.csv", "sale_id,seller_id,product_id,quantity,date\n" + rows(0, 200));
+
+        Main.Options opts = Main.Options.parse(new String[] { "--max-errors", "0" });
+        Main.Warm warm = new Main.Warm();
+        Main.run(opts, warm);
+
+        // Filas nuevas y al final una mal formada: la pasada falla después de leer las nuevas
+        append(rows(200, 300) + "bad,row\n");
+        assertThrows(IllegalArgumentException.class, () -> Main.run(opts, warm));
+
+        // Se corrige la fila (después del punto de control) y el archivo sigue creciendo
+        write("sales.csv", "sale_id,seller_id,product_id,quantity,date\n" + rows(0, 200) + rows(200, 400));
+        Main.run(opts, warm);
+        String[] warmReports = reports();
+
+        Main.run(Main.Options.parse(new String[] { "--full" }), null);
+        String[] full = reports();
+        for (int i = 0; i < REPORTS.length; i++) assertEquals(full[i], warmReports[i], REPORTS[i]);
+    }
+
+    /** Ventas [from, to) deterministas, repartidas entre vendedores, productos y meses. */
+    private static String rows(int from, int to) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = from; i < to; i++) {
+            sb.append("id").append(i).append(",S00").append(i % 3 + 1).append(",P00").append(i % 4 + 1).append(',')
+              .append(i % 7 + 1).append(",2026-0").append(i % 3 + 1).append('-').append(10 + i % 18).append('\n');
+        }
+        return sb.toString();
+    }
+
+    private static String[] reports() throws IOException {
+        String[] out = new String[REPORTS.length];
+        for (int i = 0; i < out.length; i++) out[i] = new String(Files.readAllBytes(OUTPUT.resolve(REPORTS[i])), StandardCharsets.UTF_8);
+        return out;
+    }
+
+    private static void write(String name, String content) throws IOException {
+        Files.write(INPUT.resolve(name), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void append(String content) throws IOException {
+        Files.write(INPUT.resolve("sales.csv"), content.getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+    }
+
+    private static void deleteData() throws IOException {
+        if (!Files.exists(DATA)) return;
+        try (Stream<Path> files = Files.walk(DATA)) {
+            for (Path p : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) Files.delete(p);
+        }
+    }
+}